@@ -0,0 +1,84 @@
+package com.springcloud.demo.apigateway.compression;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * CPU time of each coding against the bytes it saves, on JSON shaped like the listings of the
+ * rooms, asks and bookings services. The time per operation is the cost, inputBytes against
+ * outputBytes is the saving.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+    @Param({"GZIP", "ZSTD"})
+    private ContentCoding coding;
+
+    // Entries in the listing, roughly 1KB, 16KB and 256KB of JSON
+    @Param({"10", "160", "2560"})
+    private int entries;
+
+    // Upstream chunk size, bodies arrive in pieces of this size
+    private static final int CHUNK = 8192;
+
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        body = IntStream.range(0, entries)
+                .mapToObj(i -> "{\"id\":\"" + new UUID(i, i * 31L) + "\",\"name\":\"Sala " + i
+                        + "\",\"capacity\":" + (i % 12 + 1) + ",\"price\":" + (1500 + i % 700)
+                        + ",\"ownerId\":\"" + new UUID(i % 17, 7) + "\"}")
+                .collect(Collectors.joining(",", "[", "]"))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+        public long inputBytes;
+        public long outputBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            inputBytes = 0;
+            outputBytes = 0;
+        }
+    }
+
+    @Benchmark
+    public int compress(Sizes sizes) {
+        int written = 0;
+        try (StreamingEncoder encoder = new StreamingEncoder(coding)) {
+            for (int offset = 0; offset < body.length; offset += CHUNK) {
+                written += encoder.encode(body, offset, Math.min(CHUNK, body.length - offset)).length;
+            }
+            written += encoder.finish().length;
+        }
+        sizes.inputBytes += body.length;
+        sizes.outputBytes += written;
+        return written;
+    }
+}
@@ -0,0 +1,90 @@
+package com.springcloud.demo.apigateway.exceptions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springcloud.demo.apigateway.exceptions.dto.ErrorResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the 401 answered for a junk token, from the exception to the written body, each
+ * on a fresh mock exchange. jacksonWithStackTrace is the path before the pre-encoded handler: an
+ * exception capturing its stack trace and the ErrorResponseDTO serialized for every response.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorHandlerBenchmark {
+
+    private static final String MESSAGE = "Token not valid";
+
+    private static final SimpleException SHARED = new SimpleException(401, MESSAGE);
+
+    private ObjectMapper objectMapper;
+    private GatewayErrorWebExceptionHandler handler;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        handler = new GatewayErrorWebExceptionHandler(objectMapper);
+    }
+
+    @Benchmark
+    public MockServerWebExchange exchangeOnly() {
+        return exchange();
+    }
+
+    // What JwtAuthenticationFilter raises, one shared instance
+    @Benchmark
+    public MockServerWebExchange preEncodedShared() {
+        MockServerWebExchange exchange = exchange();
+        handler.handle(exchange, SHARED).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange preEncodedStackless() {
+        MockServerWebExchange exchange = exchange();
+        handler.handle(exchange, new SimpleException(401, MESSAGE)).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange jacksonWithStackTrace() throws Exception {
+        MockServerWebExchange exchange = exchange();
+        RuntimeException error = new RuntimeException(MESSAGE);
+        byte[] body = objectMapper.writeValueAsBytes(ErrorResponseDTO.builder()
+                .message(error.getMessage())
+                .status(401)
+                .build());
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatusCode.valueOf(401));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.writeWith(Mono.just(response.bufferFactory().wrap(body))).block();
+        return exchange;
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/rooms")
+                .header("Authorization", "Bearer junk"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.springcloud.demo.apigateway.http2;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A page load fanning out to a backend that takes a few milliseconds per call, proxied over pools
+ * set up as gateway.upstream-pool does for HTTP/1.1 and for h2c. The sample time mode reports p99,
+ * connectionsOpened the connections each protocol opened to the backend per iteration.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class Http2FanOutBenchmark {
+
+    // Rooms, asks and bookings of a dashboard with their images
+    private static final int CALLS_PER_PAGE = 24;
+    private static final Duration BACKEND_LATENCY = Duration.ofMillis(5);
+
+    private static final byte[] RESPONSE = "{\"id\":\"5f0c\",\"name\":\"Sala 1\",\"capacity\":12,\"price\":150.0}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"HTTP11", "H2C"})
+    private HttpProtocol protocol;
+
+    private final AtomicInteger openedConnections = new AtomicInteger();
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+    private HttpClient client;
+
+    @Setup
+    public void setup() {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .doOnConnection(connection -> openedConnections.incrementAndGet())
+                .handle((request, response) -> response.sendByteArray(Mono.delay(BACKEND_LATENCY).thenReturn(RESPONSE)))
+                .bindNow();
+
+        // The defaults of gateway.upstream-pool
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("bench")
+                .maxConnections(100)
+                .pendingAcquireMaxCount(-1);
+        if (protocol == HttpProtocol.H2C) {
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .maxConcurrentStreams(100)
+                    .maxConnections(2)
+                    .minConnections(1)
+                    .build());
+        }
+        connectionProvider = builder.build();
+        client = HttpClient.create(connectionProvider)
+                .protocol(protocol)
+                .baseUrl("http://127.0.0.1:" + server.port());
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionProvider.disposeLater().block();
+        server.disposeNow();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Connections {
+        public long connectionsOpened;
+
+        // The count is shared by the threads, only the first one reports it
+        private AtomicInteger opened;
+        private int openedBefore;
+        private boolean reporting;
+
+        @Setup(Level.Iteration)
+        public void reset(Http2FanOutBenchmark benchmark, ThreadParams threadParams) {
+            opened = benchmark.openedConnections;
+            openedBefore = opened.get();
+            reporting = threadParams.getThreadIndex() == 0;
+            connectionsOpened = 0;
+        }
+
+        void update() {
+            if (reporting) {
+                connectionsOpened = opened.get() - openedBefore;
+            }
+        }
+    }
+
+    @Benchmark
+    public List<byte[]> pageLoad(Connections connections) {
+        List<byte[]> responses = Flux.range(0, CALLS_PER_PAGE)
+                .flatMap(i -> client.get()
+                        .uri("/api/rooms/" + i)
+                        .responseContent()
+                        .aggregate()
+                        .asByteArray(), CALLS_PER_PAGE)
+                .collectList()
+                .block();
+        connections.update();
+        return responses;
+    }
+}
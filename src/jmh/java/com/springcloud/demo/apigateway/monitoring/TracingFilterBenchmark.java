@@ -0,0 +1,86 @@
+package com.springcloud.demo.apigateway.monitoring;
+
+import com.springcloud.demo.apigateway.monitoring.tracing.OtelTracingBackend;
+import com.springcloud.demo.apigateway.monitoring.tracing.TailSamplingPolicy;
+import com.springcloud.demo.apigateway.monitoring.tracing.TracingBackend;
+import com.springcloud.demo.apigateway.monitoring.tracing.XRayTracingBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the tracing filter per request with each backend, span start, header injection and end
+ * included. Spans are not exported: X-Ray sends its UDP datagram to a daemon that need not be
+ * there, the OpenTelemetry provider has no processor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TracingFilterBenchmark {
+
+    private static final GatewayFilterChain OK = exchange -> {
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        return Mono.empty();
+    };
+
+    @Param({"xray", "otel"})
+    private String backend;
+
+    private OpenTelemetrySdk openTelemetry;
+    private TracingFilterConfig filter;
+
+    @Setup
+    public void setup() {
+        TracingBackend tracingBackend;
+        if ("otel".equals(backend)) {
+            openTelemetry = OpenTelemetrySdk.builder()
+                    .setTracerProvider(SdkTracerProvider.builder().build())
+                    .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                    .build();
+            tracingBackend = new OtelTracingBackend(openTelemetry);
+        } else {
+            // Tail sampling stays off, as by default
+            tracingBackend = new XRayTracingBackend(new TailSamplingPolicy(new SimpleMeterRegistry()));
+        }
+        filter = new TracingFilterConfig(tracingBackend);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (openTelemetry != null) {
+            openTelemetry.close();
+        }
+    }
+
+    @Benchmark
+    public MockServerWebExchange traced() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/rooms")
+                .header("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"));
+        filter.filter(exchange, OK).block();
+        return exchange;
+    }
+}
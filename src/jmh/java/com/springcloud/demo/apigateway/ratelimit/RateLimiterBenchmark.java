@@ -0,0 +1,86 @@
+package com.springcloud.demo.apigateway.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decisions per second with every core hitting the limiter. One key puts all threads on the same
+ * bucket, many keys spread them over the map like distinct users. The synchronized bucket is the
+ * baseline the compare-and-set bucket replaces.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    @Param({"1", "10000"})
+    private int keys;
+
+    private RateLimiter rateLimiter;
+    private SynchronizedBucket synchronizedBucket;
+    private String[] names;
+
+    @Setup
+    public void setup() {
+        rateLimiter = new RateLimiter(1_000_000, Duration.ofSeconds(1), 0, 100_000);
+        synchronizedBucket = new SynchronizedBucket(1_000_000, 1_000_000);
+        names = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            names[i] = "user-" + i;
+        }
+    }
+
+    @Benchmark
+    public long tokenBucket() {
+        String key = names[ThreadLocalRandom.current().nextInt(names.length)];
+        return rateLimiter.tryAcquire(key, System.nanoTime());
+    }
+
+    @Benchmark
+    public boolean synchronizedBaseline() {
+        return synchronizedBucket.tryAcquire(System.nanoTime());
+    }
+
+    // Classic bucket refilled under a lock on every call
+    static final class SynchronizedBucket {
+
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        SynchronizedBucket(int capacity, int tokensPerSecond) {
+            this.capacity = capacity;
+            this.tokensPerNano = tokensPerSecond / 1e9;
+            this.tokens = capacity;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
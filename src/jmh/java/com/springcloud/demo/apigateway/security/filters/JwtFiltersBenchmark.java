@@ -0,0 +1,145 @@
+package com.springcloud.demo.apigateway.security.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.client.users.dto.UserRoleDTO;
+import com.springcloud.demo.apigateway.exceptions.GatewayErrorWebExceptionHandler;
+import com.springcloud.demo.apigateway.security.jwt.BenchmarkJwtUtils;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the JWT filters per request, each on a fresh mock exchange with a chain that does
+ * nothing and a UserClient answering from memory. Rejections go through the
+ * {@link GatewayErrorWebExceptionHandler} until the error body is written, as in the gateway.
+ * exchangeOnly is the cost of the mock exchange itself, to subtract from the others.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtFiltersBenchmark {
+
+    private static final String EMAIL = "bench@gmail.com";
+
+    private static final GatewayFilterChain PASS = exchange -> Mono.empty();
+
+    // The auth service answers a login with the email of the user, the filter turns it into a token
+    private static final GatewayFilterChain LOGIN = exchange -> {
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        exchange.getResponse().getHeaders().set("email", EMAIL);
+        return Mono.empty();
+    };
+
+    private static final GatewayFilterChain FAILED_LOGIN = exchange -> {
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        return Mono.empty();
+    };
+
+    private GatewayErrorWebExceptionHandler errorHandler;
+    private String bearer;
+    private GatewayFilter customersOnly;
+    private GatewayFilter ownersOnly;
+    private GatewayFilter generator;
+
+    @Setup
+    public void setup() {
+        errorHandler = new GatewayErrorWebExceptionHandler(new ObjectMapper());
+        JwtUtils jwtUtils = BenchmarkJwtUtils.withSecret("k".repeat(32));
+        bearer = "Bearer " + jwtUtils.generateToken(EMAIL);
+
+        UserDTO user = UserDTO.builder()
+                .id(UUID.randomUUID())
+                .email(EMAIL)
+                .roles(List.of(UserRoleDTO.builder().role("CUSTOMER").build()))
+                .build();
+        Mono<UserDTO> lookup = Mono.just(user);
+        UserClient userClient = new UserClient(WebClient.builder()) {
+            @Override
+            public Mono<UserDTO> findByEmail(String email) {
+                return lookup;
+            }
+        };
+
+        JwtAuthenticationFilter authentication = new JwtAuthenticationFilter(jwtUtils, userClient);
+        customersOnly = authentication.apply(new JwtAuthenticationFilter.Config(List.of("CUSTOMER")));
+        ownersOnly = authentication.apply(new JwtAuthenticationFilter.Config(List.of("OWNER")));
+        generator = new JwtGeneratorFilter(jwtUtils).apply(new JwtGeneratorFilter.Config());
+    }
+
+    @Benchmark
+    public MockServerWebExchange exchangeOnly() {
+        return exchange(bearer);
+    }
+
+    @Benchmark
+    public Object authenticated() {
+        return run(customersOnly, exchange(bearer), PASS);
+    }
+
+    // Valid token, the user lacks the role of the route
+    @Benchmark
+    public Object forbidden() {
+        return run(ownersOnly, exchange(bearer), PASS);
+    }
+
+    // Rejected by the signature check, before any user lookup
+    @Benchmark
+    public Object invalidToken() {
+        return run(customersOnly, exchange(bearer + "x"), PASS);
+    }
+
+    @Benchmark
+    public Object missingToken() {
+        return run(customersOnly, exchange(null), PASS);
+    }
+
+    @Benchmark
+    public Object tokenGenerated() {
+        return run(generator, exchange(null), LOGIN);
+    }
+
+    @Benchmark
+    public Object loginRejected() {
+        return run(generator, exchange(null), FAILED_LOGIN);
+    }
+
+    private static MockServerWebExchange exchange(String authorization) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/bookings");
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    // Rejections are errors, writing their response is as much part of the cost as a pass
+    private Object run(GatewayFilter filter, MockServerWebExchange exchange, GatewayFilterChain chain) {
+        return filter.filter(exchange, chain)
+                .onErrorResume(error -> errorHandler.handle(exchange, error))
+                .then(Mono.just(exchange))
+                .block();
+    }
+}
@@ -0,0 +1,16 @@
+package com.springcloud.demo.apigateway.security.jwt;
+
+/**
+ * JwtUtils without a Spring context, for benchmarks outside this package.
+ */
+public final class BenchmarkJwtUtils {
+
+    private BenchmarkJwtUtils() {
+    }
+
+    public static JwtUtils withSecret(String secret) {
+        JwtUtils jwtUtils = new JwtUtils();
+        jwtUtils.jwtSecret = secret;
+        return jwtUtils;
+    }
+}
@@ -0,0 +1,88 @@
+package com.springcloud.demo.apigateway.transport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep-alive requests per second over loopback, with the server and client set up by
+ * {@link TransportOptions} as in the performance profile. NIO is the default the native transports
+ * are compared against, io_uring needs -Pio-uring and is preferred over epoll when it is there, a
+ * transport this machine does not run fails its setup rather than being measured as another one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+
+    // Roughly one JSON entry of a listing
+    private static final byte[] RESPONSE = "{\"id\":\"5f0c\",\"name\":\"Sala 1\",\"capacity\":12,\"price\":150.0}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"NIO", "EPOLL", "IO_URING"})
+    private Transport transport;
+
+    private LoopResources loops;
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+    private HttpClient client;
+
+    @Setup
+    public void setup() {
+        if (Transport.resolve(transport.isNative()) != transport) {
+            throw new IllegalStateException(transport + " transport is not the one Reactor Netty picks here");
+        }
+        TransportProperties properties = new TransportProperties();
+        properties.setPreferNative(transport.isNative());
+        loops = LoopResources.create("bench-http", LoopResources.DEFAULT_IO_SELECT_COUNT,
+                LoopResources.DEFAULT_IO_WORKER_COUNT, true);
+        TransportOptions options = new TransportOptions(properties, transport, loops);
+
+        server = options.apply(HttpServer.create().host("127.0.0.1").port(0))
+                .handle((request, response) -> response.sendByteArray(Mono.just(RESPONSE)))
+                .bindNow();
+        connectionProvider = ConnectionProvider.create("bench", 64);
+        client = options.apply(HttpClient.create(connectionProvider))
+                .baseUrl("http://127.0.0.1:" + server.port());
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionProvider.disposeLater().block();
+        server.disposeNow();
+        loops.disposeLater().block();
+    }
+
+    @Benchmark
+    public byte[] request() {
+        return client.get()
+                .uri("/api/rooms")
+                .responseContent()
+                .aggregate()
+                .asByteArray()
+                .block();
+    }
+}
@@ -0,0 +1,67 @@
+package com.springcloud.demo.apigateway.cache;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Streams the response to the client untouched while keeping a copy of the body. The copy is
+ * abandoned as soon as it grows past {@code maxBytes}, so large bodies are never held in heap.
+ */
+public class BodyCaptureResponse extends ServerHttpResponseDecorator {
+
+    private final int maxBytes;
+    private final Consumer<byte[]> onCaptured;
+
+    private ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+    public BodyCaptureResponse(ServerHttpResponse delegate, int maxBytes, Consumer<byte[]> onCaptured) {
+        super(delegate);
+        this.maxBytes = maxBytes;
+        this.onCaptured = onCaptured;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        return super.writeWith(Flux.from(body)
+                .doOnNext(this::capture)
+                .doOnComplete(this::complete));
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        return super.writeAndFlushWith(Flux.from(body)
+                .map(chunk -> Flux.from(chunk).doOnNext(this::capture))
+                .doOnComplete(this::complete));
+    }
+
+    private void capture(DataBuffer buffer) {
+        if (captured == null) {
+            return;
+        }
+
+        int readable = buffer.readableByteCount();
+        if (captured.size() + readable > maxBytes) {
+            captured = null;
+            return;
+        }
+
+        byte[] chunk = new byte[readable];
+        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(chunk), 0, readable);
+        captured.writeBytes(chunk);
+    }
+
+    private void complete() {
+        if (captured != null) {
+            onCaptured.accept(captured.toByteArray());
+            captured = null;
+        }
+    }
+}
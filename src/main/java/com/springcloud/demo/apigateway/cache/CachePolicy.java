@@ -0,0 +1,47 @@
+package com.springcloud.demo.apigateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * The {@code Cache-Control} directives of a downstream response that matter to a shared cache.
+ */
+public record CachePolicy(boolean storable, boolean revalidate, long maxAgeSeconds) {
+
+    public static CachePolicy of(HttpHeaders headers, long defaultMaxAgeSeconds) {
+        boolean storable = true;
+        boolean revalidate = false;
+        long maxAge = -1;
+        long sharedMaxAge = -1;
+
+        for (String value : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+            for (String directive : value.split(",")) {
+                String name = directive.trim().toLowerCase();
+                int equals = name.indexOf('=');
+                String argument = equals > 0 ? name.substring(equals + 1).replace("\"", "") : null;
+                if (equals > 0) {
+                    name = name.substring(0, equals);
+                }
+
+                switch (name) {
+                    case "no-store", "private" -> storable = false;
+                    case "no-cache" -> revalidate = true;
+                    case "max-age" -> maxAge = parseSeconds(argument);
+                    case "s-maxage" -> sharedMaxAge = parseSeconds(argument);
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        long freshFor = sharedMaxAge >= 0 ? sharedMaxAge : maxAge >= 0 ? maxAge : defaultMaxAgeSeconds;
+        return new CachePolicy(storable, revalidate || freshFor <= 0, Math.max(freshFor, 0));
+    }
+
+    private static long parseSeconds(String argument) {
+        try {
+            return argument == null ? -1 : Long.parseLong(argument);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
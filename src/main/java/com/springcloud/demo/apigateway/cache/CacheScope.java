@@ -0,0 +1,26 @@
+package com.springcloud.demo.apigateway.cache;
+
+import com.springcloud.demo.apigateway.security.filters.JwtAuthenticationFilter;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Who may share a response of an authenticated route.
+ */
+public enum CacheScope {
+
+    // Data of the user itself
+    USER(JwtAuthenticationFilter.USER_ID_ATTRIBUTE),
+    // Data every user with the same roles can see
+    ROLE(JwtAuthenticationFilter.USER_ROLES_ATTRIBUTE);
+
+    private final String attribute;
+
+    CacheScope(String attribute) {
+        this.attribute = attribute;
+    }
+
+    // Null when the request was not authenticated, such requests are never shared
+    public String of(ServerWebExchange exchange) {
+        return exchange.getAttribute(attribute);
+    }
+}
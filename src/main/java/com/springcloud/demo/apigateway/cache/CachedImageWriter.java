@@ -0,0 +1,155 @@
+package com.springcloud.demo.apigateway.cache;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.ResourceRegionEncoder;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Writes a cached image as the answer to a request: 304 when its conditional headers match, 206 or
+ * 416 for {@code Range} requests and the full body otherwise. The body bytes left out of the answer
+ * are reported to {@code saved}.
+ */
+final class CachedImageWriter {
+
+    private static final int FILE_CHUNK_SIZE = 64 * 1024;
+    private static final ResourceRegionEncoder REGION_ENCODER = new ResourceRegionEncoder(FILE_CHUNK_SIZE);
+
+    private CachedImageWriter() {
+    }
+
+    static Mono<Void> write(HttpHeaders requestHeaders, ServerHttpResponse response, ImageCacheEntry entry,
+                            LongConsumer saved) {
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(entry.getHeaders());
+        headers.setETag(entry.getEtag());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (notModified(requestHeaders, entry)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            saved.accept(entry.getLength());
+            return response.setComplete();
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = rangeApplies(requestHeaders, entry) ? requestHeaders.getRange() : List.of();
+        } catch (IllegalArgumentException e) {
+            // Malformed ranges are ignored, as if the header was not sent
+            ranges = List.of();
+        }
+
+        if (ranges.isEmpty()) {
+            response.setStatusCode(HttpStatus.OK);
+            headers.setContentLength(entry.getLength());
+            return writeBody(response, entry, 0, entry.getLength());
+        }
+
+        List<ResourceRegion> regions;
+        try {
+            regions = HttpRange.toResourceRegions(ranges, resource(entry));
+        } catch (IllegalArgumentException e) {
+            response.setStatusCode(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + entry.getLength());
+            headers.setContentLength(0);
+            saved.accept(entry.getLength());
+            return response.setComplete();
+        }
+
+        response.setStatusCode(HttpStatus.PARTIAL_CONTENT);
+        if (regions.size() == 1) {
+            ResourceRegion region = regions.get(0);
+            long end = region.getPosition() + region.getCount() - 1;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + region.getPosition() + '-' + end + '/' + entry.getLength());
+            headers.setContentLength(region.getCount());
+            saved.accept(entry.getLength() - region.getCount());
+            return writeBody(response, entry, region.getPosition(), region.getCount());
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        MediaType partType = headers.getContentType() != null ? headers.getContentType() : MediaType.APPLICATION_OCTET_STREAM;
+        headers.setContentType(MediaType.parseMediaType("multipart/byteranges;boundary=" + boundary));
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        // Part headers are not counted, ranges may overlap
+        saved.accept(Math.max(0, entry.getLength() - regions.stream().mapToLong(ResourceRegion::getCount).sum()));
+        return response.writeWith(REGION_ENCODER.encode(Flux.fromIterable(regions), response.bufferFactory(),
+                ResolvableType.forClass(ResourceRegion.class), partType,
+                Map.of(ResourceRegionEncoder.BOUNDARY_STRING_HINT, boundary)));
+    }
+
+    private static Mono<Void> writeBody(ServerHttpResponse response, ImageCacheEntry entry, long position, long count) {
+        if (!entry.isOnDisk()) {
+            return response.writeWith(Mono.just(response.bufferFactory()
+                    .wrap(ByteBuffer.wrap(entry.getBody(), (int) position, (int) count))));
+        }
+        // Netty sends the file with a FileRegion, the bytes never enter the heap
+        if (response instanceof ZeroCopyHttpOutputMessage zeroCopy) {
+            return zeroCopy.writeWith(entry.getFile(), position, count);
+        }
+        return response.writeWith(DataBufferUtils.takeUntilByteCount(DataBufferUtils.skipUntilByteCount(
+                DataBufferUtils.read(entry.getFile(), response.bufferFactory(), FILE_CHUNK_SIZE), position), count));
+    }
+
+    // If-None-Match wins over If-Modified-Since, as in RFC 9110 section 13.2.2
+    private static boolean notModified(HttpHeaders requestHeaders, ImageCacheEntry entry) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            String etag = opaqueTag(entry.getEtag());
+            return ifNoneMatch.stream().anyMatch(tag -> tag.equals("*") || opaqueTag(tag).equals(etag));
+        }
+
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        long lastModified = entry.getHeaders().getLastModified();
+        return ifModifiedSince >= 0 && lastModified >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    // If-Range needs a strong tag or the exact Last-Modified date, otherwise the whole image is sent
+    private static boolean rangeApplies(HttpHeaders requestHeaders, ImageCacheEntry entry) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return !ifRange.startsWith("W/") && !entry.getEtag().startsWith("W/") && ifRange.equals(entry.getEtag());
+        }
+
+        try {
+            long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli();
+            return date == entry.getHeaders().getLastModified();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static Resource resource(ImageCacheEntry entry) {
+        return entry.isOnDisk() ? new FileSystemResource(entry.getFile()) : new ByteArrayResource(entry.getBody());
+    }
+}
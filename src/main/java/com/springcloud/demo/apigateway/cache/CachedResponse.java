@@ -0,0 +1,13 @@
+package com.springcloud.demo.apigateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * A 200 response of a read route, kept for one user or role until {@code expiresAt}.
+ */
+public record CachedResponse(HttpHeaders headers, byte[] body, long expiresAt) {
+
+    public boolean isFresh(long now) {
+        return now < expiresAt;
+    }
+}
@@ -0,0 +1,203 @@
+package com.springcloud.demo.apigateway.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Two tier cache for image bodies: small objects in a heap tier, bigger ones in files that are
+ * sent with zero-copy. Both tiers evict the least recently used entries by size.
+ */
+@Slf4j
+public class ImageCache {
+
+    private static final List<String> STORED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL);
+
+    private static final String FILE_SUFFIX = ".bin";
+
+    private final ImageCacheProperties properties;
+    private final SizedLruCache<String, ImageCacheEntry> memory;
+    private final SizedLruCache<String, ImageCacheEntry> disk;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter revalidated;
+    private final Counter upstreamBytesSaved;
+    private final Counter clientBytesSaved;
+
+    public ImageCache(ImageCacheProperties properties, MeterRegistry meterRegistry) throws IOException {
+        this.properties = properties;
+        this.memory = new SizedLruCache<>(properties.getMemoryMaxSize().toBytes(), ImageCacheEntry::getLength);
+        this.disk = new SizedLruCache<>(properties.getDiskMaxSize().toBytes(), ImageCacheEntry::getLength);
+
+        // The index lives in memory, files left by a previous run are unreachable. Only the entries
+        // are deleted, the directory may be shared with other files.
+        Files.createDirectories(properties.getDiskDirectory());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(properties.getDiskDirectory(), "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    Files.delete(file);
+                }
+            }
+        }
+
+        this.hits = meterRegistry.counter("gateway.image_cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("gateway.image_cache.requests", "result", "miss");
+        this.revalidated = meterRegistry.counter("gateway.image_cache.requests", "result", "revalidated");
+        // Body bytes the service did not send, and body bytes the client did not receive thanks to 304 and 206
+        this.upstreamBytesSaved = meterRegistry.counter("gateway.image_cache.bytes_saved", "link", "upstream");
+        this.clientBytesSaved = meterRegistry.counter("gateway.image_cache.bytes_saved", "link", "client");
+        Gauge.builder("gateway.image_cache.size", memory, SizedLruCache::bytes).tag("tier", "memory")
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("gateway.image_cache.size", disk, SizedLruCache::bytes).tag("tier", "disk")
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("gateway.image_cache.entries", memory, SizedLruCache::size).tag("tier", "memory")
+                .register(meterRegistry);
+        Gauge.builder("gateway.image_cache.entries", disk, SizedLruCache::size).tag("tier", "disk")
+                .register(meterRegistry);
+    }
+
+    // Empty on a miss. A disk entry is checked off the event loop, its file may have been removed.
+    public Mono<ImageCacheEntry> get(String key) {
+        ImageCacheEntry entry = memory.get(key);
+        if (entry != null) {
+            return Mono.just(entry);
+        }
+
+        ImageCacheEntry onDisk = disk.get(key);
+        if (onDisk == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> {
+            if (Files.exists(onDisk.getFile())) {
+                return onDisk;
+            }
+            disk.remove(key);
+            return null;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public long maxObjectSize() {
+        return Math.max(properties.getMemoryMaxObjectSize().toBytes(), properties.getDiskMaxObjectSize().toBytes());
+    }
+
+    public void put(String key, HttpHeaders responseHeaders, byte[] body) {
+        CachePolicy policy = CachePolicy.of(responseHeaders, properties.getDefaultMaxAge().toSeconds());
+        boolean hasValidators = responseHeaders.getETag() != null || responseHeaders.getLastModified() >= 0;
+        if (!policy.storable() || (policy.revalidate() && !hasValidators)) {
+            return;
+        }
+        // Content-Encoding is not stored, an encoded body the service sent anyway would be served as identity
+        String encoding = responseHeaders.getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (encoding != null && !encoding.equalsIgnoreCase("identity")) {
+            return;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        STORED_HEADERS.forEach(name -> {
+            List<String> values = responseHeaders.get(name);
+            if (values != null) {
+                headers.put(name, values);
+            }
+        });
+        long expiresAt = System.currentTimeMillis() + policy.maxAgeSeconds() * 1000;
+        boolean inMemory = body.length <= properties.getMemoryMaxObjectSize().toBytes();
+        if (!inMemory && body.length > properties.getDiskMaxObjectSize().toBytes()) {
+            return;
+        }
+
+        // Hashing, file writes and deletes never run on the event loop
+        Schedulers.boundedElastic().schedule(() -> {
+            String etag = etagOf(headers, body);
+            if (inMemory) {
+                memory.put(key, new ImageCacheEntry(headers, etag, body.length, body, null, expiresAt,
+                        policy.revalidate()));
+                deleteFiles(List.of(), disk.remove(key));
+                return;
+            }
+            try {
+                Path file = Files.write(properties.getDiskDirectory().resolve(UUID.randomUUID() + FILE_SUFFIX), body);
+                ImageCacheEntry entry = new ImageCacheEntry(
+                        headers, etag, body.length, null, file, expiresAt, policy.revalidate());
+                deleteFiles(disk.put(key, entry), null);
+                memory.remove(key);
+            } catch (IOException e) {
+                log.warn("Could not write image cache file for {}", key, e);
+            }
+        });
+    }
+
+    // A 304 from the service confirms the entry, the new Cache-Control (if any) sets its freshness
+    public void revalidated(ImageCacheEntry entry, HttpHeaders notModifiedHeaders) {
+        HttpHeaders policyHeaders = notModifiedHeaders.containsKey(HttpHeaders.CACHE_CONTROL)
+                ? notModifiedHeaders
+                : entry.getHeaders();
+        CachePolicy policy = CachePolicy.of(policyHeaders, properties.getDefaultMaxAge().toSeconds());
+        entry.extend(System.currentTimeMillis() + policy.maxAgeSeconds() * 1000);
+
+        revalidated.increment();
+        upstreamBytesSaved.increment(entry.getLength());
+    }
+
+    public void hit(ImageCacheEntry entry) {
+        hits.increment();
+        upstreamBytesSaved.increment(entry.getLength());
+    }
+
+    public void clientSaved(long bytes) {
+        clientBytesSaved.increment(bytes);
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    // Hash of the body when the service sent no strong tag, so it is the same on every instance and
+    // across restarts. The cached bytes never change, so the derived tag is strong and Range can use it.
+    private static String etagOf(HttpHeaders headers, byte[] body) {
+        String etag = headers.getETag();
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return '"' + HexFormat.of().formatHex(digest, 0, 16) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void deleteFiles(List<ImageCacheEntry> evicted, ImageCacheEntry removed) {
+        evicted.forEach(this::deleteFile);
+        if (removed != null) {
+            deleteFile(removed);
+        }
+    }
+
+    private void deleteFile(ImageCacheEntry entry) {
+        if (!entry.isOnDisk()) {
+            return;
+        }
+        // A transfer already in progress keeps reading the unlinked file
+        try {
+            Files.deleteIfExists(entry.getFile());
+        } catch (IOException e) {
+            log.warn("Could not delete image cache file {}", entry.getFile(), e);
+        }
+    }
+}
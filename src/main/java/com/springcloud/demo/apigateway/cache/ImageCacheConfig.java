@@ -0,0 +1,20 @@
+package com.springcloud.demo.apigateway.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+@Configuration
+@EnableConfigurationProperties(ImageCacheProperties.class)
+public class ImageCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.image-cache.enabled", havingValue = "true", matchIfMissing = true)
+    public ImageCache imageCache(ImageCacheProperties properties, MeterRegistry meterRegistry) throws IOException {
+        return new ImageCache(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,45 @@
+package com.springcloud.demo.apigateway.cache;
+
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+
+import java.nio.file.Path;
+
+/**
+ * Cached image, with its body either in heap or in a file of the disk tier. The {@code etag} is the
+ * one sent by the service or, when it sent none, a strong tag computed from the body.
+ */
+@Getter
+public class ImageCacheEntry {
+
+    private final HttpHeaders headers;
+    private final String etag;
+    private final long length;
+    private final byte[] body;
+    private final Path file;
+    private volatile long expiresAt;
+    private final boolean revalidate;
+
+    ImageCacheEntry(HttpHeaders headers, String etag, long length, byte[] body, Path file, long expiresAt,
+                    boolean revalidate) {
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.etag = etag;
+        this.length = length;
+        this.body = body;
+        this.file = file;
+        this.expiresAt = expiresAt;
+        this.revalidate = revalidate;
+    }
+
+    public boolean isFresh(long now) {
+        return !revalidate && now < expiresAt;
+    }
+
+    public boolean isOnDisk() {
+        return file != null;
+    }
+
+    void extend(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,144 @@
+package com.springcloud.demo.apigateway.cache;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves GET requests of image routes from {@link ImageCache}, answering conditional and {@code Range}
+ * requests from the cached copy and revalidating stale entries with the service through
+ * {@code If-None-Match} / {@code If-Modified-Since}.
+ */
+@Component
+public class ImageCacheFilter extends AbstractGatewayFilterFactory<ImageCacheFilter.Config> {
+
+    private final ImageCache imageCache;
+
+    public ImageCacheFilter(ObjectProvider<ImageCache> imageCache) {
+        super(ImageCacheFilter.Config.class);
+        this.imageCache = imageCache.getIfAvailable();
+    }
+
+    public static class Config {
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Before NettyWriteResponseFilter, which would otherwise write to the undecorated response
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (imageCache == null || request.getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+
+            String key = cacheKey(exchange);
+            return imageCache.get(key)
+                    .map(entry -> serve(exchange, chain, key, entry))
+                    .defaultIfEmpty(Mono.defer(() -> forward(exchange, chain, key, null)))
+                    .flatMap(write -> write);
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> serve(ServerWebExchange exchange, GatewayFilterChain chain, String key, ImageCacheEntry entry) {
+        if (!entry.isFresh(System.currentTimeMillis())) {
+            return forward(exchange, chain, key, entry);
+        }
+        imageCache.hit(entry);
+        return CachedImageWriter.write(exchange.getRequest().getHeaders(), exchange.getResponse(), entry,
+                imageCache::clientSaved);
+    }
+
+    // The service is asked for the identity body, which the cache can store and serve to any client. A
+    // stale entry is revalidated with our validators, the conditions of the client are then evaluated
+    // against it. Range is dropped so a changed image comes back whole and is cached. The client headers
+    // are copied first, a mutated request shares them with the original.
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain, String key, ImageCacheEntry stale) {
+        ServerHttpRequest request = exchange.getRequest();
+        HttpHeaders clientHeaders = new HttpHeaders();
+        clientHeaders.addAll(request.getHeaders());
+        ServerHttpRequest upstreamRequest = request.mutate()
+                .headers(headers -> {
+                    headers.set(HttpHeaders.ACCEPT_ENCODING, "identity");
+                    if (stale == null) {
+                        return;
+                    }
+                    headers.remove(HttpHeaders.IF_NONE_MATCH);
+                    headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                    headers.remove(HttpHeaders.RANGE);
+                    headers.remove(HttpHeaders.IF_RANGE);
+                    if (stale.getHeaders().getETag() != null) {
+                        headers.setIfNoneMatch(stale.getHeaders().getETag());
+                    }
+                    if (stale.getHeaders().getLastModified() >= 0) {
+                        headers.setIfModifiedSince(stale.getHeaders().getLastModified());
+                    }
+                })
+                .build();
+
+        ImageCacheResponse response = new ImageCacheResponse(clientHeaders, exchange.getResponse(), key, stale);
+        return chain.filter(exchange.mutate().request(upstreamRequest).response(response).build());
+    }
+
+    static String cacheKey(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String query = exchange.getRequest().getURI().getRawQuery();
+        String path = exchange.getRequest().getPath().value();
+        return (route != null ? route.getId() : "") + ':' + (query != null ? path + '?' + query : path);
+    }
+
+    private class ImageCacheResponse extends ServerHttpResponseDecorator {
+
+        private final HttpHeaders clientHeaders;
+        private final String key;
+        private final ImageCacheEntry stale;
+
+        ImageCacheResponse(HttpHeaders clientHeaders, ServerHttpResponse delegate, String key, ImageCacheEntry stale) {
+            super(delegate);
+            this.clientHeaders = clientHeaders;
+            this.key = key;
+            this.stale = stale;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+
+            if (stale != null && status != null && status.value() == HttpStatus.NOT_MODIFIED.value()) {
+                imageCache.revalidated(stale, getHeaders());
+                return Flux.from(body)
+                        .doOnNext(DataBufferUtils::release)
+                        .then(Mono.defer(() -> CachedImageWriter.write(clientHeaders, getDelegate(), stale,
+                                imageCache::clientSaved)));
+            }
+
+            imageCache.miss();
+            if (status == null || status.value() != HttpStatus.OK.value()) {
+                return super.writeWith(body);
+            }
+
+            int maxBytes = (int) Math.min(imageCache.maxObjectSize(), Integer.MAX_VALUE - 8);
+            ServerHttpResponse delegate = getDelegate();
+            return new BodyCaptureResponse(delegate, maxBytes, captured -> imageCache.put(key, delegate.getHeaders(), captured))
+                    .writeWith(body);
+        }
+    }
+}
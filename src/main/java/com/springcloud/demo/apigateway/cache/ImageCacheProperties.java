@@ -0,0 +1,27 @@
+package com.springcloud.demo.apigateway.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.image-cache")
+public class ImageCacheProperties {
+
+    private boolean enabled = true;
+
+    // Objects up to this size stay in heap, bigger ones go to disk
+    private DataSize memoryMaxObjectSize = DataSize.ofKilobytes(256);
+    private DataSize memoryMaxSize = DataSize.ofMegabytes(64);
+
+    // Entries are .bin files, those of a previous run are deleted on startup and nothing else
+    private Path diskDirectory = Path.of(System.getProperty("java.io.tmpdir"), "gateway-image-cache");
+    private DataSize diskMaxObjectSize = DataSize.ofMegabytes(16);
+    private DataSize diskMaxSize = DataSize.ofGigabytes(1);
+
+    // Freshness when the service sends validators but no max-age, zero means revalidate every time
+    private Duration defaultMaxAge = Duration.ZERO;
+}
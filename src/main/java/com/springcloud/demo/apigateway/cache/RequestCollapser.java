@@ -0,0 +1,98 @@
+package com.springcloud.demo.apigateway.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-flight GET requests, by route, path, query and scope. The first request of a key leads and
+ * goes upstream, identical requests arriving within the window wait for its response.
+ */
+public class RequestCollapser {
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public RequestCollapser(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("gateway.request_collapsing.in_flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the request already in flight for the key, or registers and returns a new one whose
+     * {@link InFlight#isLeader()} is true for the caller.
+     */
+    public InFlight join(String key, Duration window) {
+        long now = System.nanoTime();
+        InFlight[] created = {null};
+
+        InFlight flight = inFlight.compute(key, (k, current) -> {
+            if (current != null && now - current.startedAt < window.toNanos()) {
+                return current;
+            }
+            created[0] = new InFlight(key, now);
+            return created[0];
+        });
+        return flight == created[0] ? flight.asLeader() : flight;
+    }
+
+    public void completed(InFlight flight, HttpHeaders headers, byte[] body) {
+        remove(flight);
+        flight.sink.tryEmitValue(new CollapsedResponse(headers, body));
+    }
+
+    // The leader failed, was cancelled or its response cannot be replayed
+    public void abandoned(InFlight flight) {
+        remove(flight);
+        flight.sink.tryEmitEmpty();
+    }
+
+    // The leader holds a copy of the registered InFlight, both share the sink
+    private void remove(InFlight flight) {
+        inFlight.computeIfPresent(flight.key, (key, current) -> current.sink == flight.sink ? null : current);
+    }
+
+    public void record(String routeId, String result) {
+        meterRegistry.counter("gateway.request_collapsing.requests", "route", routeId, "result", result).increment();
+    }
+
+    public record CollapsedResponse(HttpHeaders headers, byte[] body) {
+    }
+
+    public static final class InFlight {
+
+        private final String key;
+        private final long startedAt;
+        private final Sinks.One<CollapsedResponse> sink;
+        private final boolean leader;
+
+        private InFlight(String key, long startedAt) {
+            this(key, startedAt, Sinks.one(), false);
+        }
+
+        private InFlight(String key, long startedAt, Sinks.One<CollapsedResponse> sink, boolean leader) {
+            this.key = key;
+            this.startedAt = startedAt;
+            this.sink = sink;
+            this.leader = leader;
+        }
+
+        private InFlight asLeader() {
+            return new InFlight(key, startedAt, sink, true);
+        }
+
+        public boolean isLeader() {
+            return leader;
+        }
+
+        public Mono<CollapsedResponse> response() {
+            return sink.asMono();
+        }
+    }
+}
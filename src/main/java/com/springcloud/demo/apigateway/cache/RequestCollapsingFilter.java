@@ -0,0 +1,114 @@
+package com.springcloud.demo.apigateway.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets identical GET requests in flight at the same time share one upstream exchange. This filter
+ * only decorates the response, the requests are matched by {@link RequestCollapsingLookupFilter}
+ * once JwtAuthenticationFilter has identified the user.
+ */
+@Component
+public class RequestCollapsingFilter extends AbstractGatewayFilterFactory<RequestCollapsingFilter.Config> {
+
+    static final String RESPONSE_ATTRIBUTE = RequestCollapsingFilter.class.getName() + ".response";
+
+    // Never replayed to other requests
+    private static final List<String> PRIVATE_HEADERS = List.of(
+            HttpHeaders.SET_COOKIE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION);
+
+    private final RequestCollapser requestCollapser;
+    private final RequestCollapsingProperties properties;
+
+    public RequestCollapsingFilter(RequestCollapser requestCollapser, RequestCollapsingProperties properties) {
+        super(RequestCollapsingFilter.Config.class);
+        this.requestCollapser = requestCollapser;
+        this.properties = properties;
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+        // Requests only join one started less than this ago
+        private Duration window = Duration.ofSeconds(1);
+        // Past this, a waiting request is forwarded on its own
+        private Duration maxWait = Duration.ofSeconds(10);
+        private CacheScope scope = CacheScope.USER;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Before NettyWriteResponseFilter, which would otherwise write to the undecorated response
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+
+            CollapsingResponse response = new CollapsingResponse(exchange.getResponse(), config);
+            exchange.getAttributes().put(RESPONSE_ATTRIBUTE, response);
+            return chain.filter(exchange.mutate().response(response).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    class CollapsingResponse extends ServerHttpResponseDecorator {
+
+        @Getter
+        private final Config config;
+
+        private RequestCollapser.InFlight leading;
+
+        CollapsingResponse(ServerHttpResponse delegate, Config config) {
+            super(delegate);
+            this.config = config;
+        }
+
+        // Called for the first request of a key, its response is then handed to the others
+        void lead(RequestCollapser.InFlight flight) {
+            this.leading = flight;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            RequestCollapser.InFlight flight = leading;
+            if (flight == null) {
+                return super.writeWith(body);
+            }
+
+            HttpStatusCode status = getStatusCode();
+            if (status == null || status.value() != HttpStatus.OK.value()) {
+                requestCollapser.abandoned(flight);
+                return super.writeWith(body);
+            }
+
+            // Once the body went through, it was either handed to the waiting requests or was too big.
+            // Tied to the body rather than the write, which can complete before the body does.
+            // Copied before compression, decorated below, sets Content-Encoding and ETag of the leader
+            HttpHeaders headers = new HttpHeaders();
+            getHeaders().forEach((name, values) -> headers.put(name, new ArrayList<>(values)));
+            PRIVATE_HEADERS.forEach(headers::remove);
+            HttpHeaders replayed = HttpHeaders.readOnlyHttpHeaders(headers);
+            return new BodyCaptureResponse(getDelegate(), (int) properties.getMaxBodySize().toBytes(),
+                    captured -> requestCollapser.completed(flight, replayed, captured))
+                    .writeWith(Flux.from(body).doFinally(signal -> requestCollapser.abandoned(flight)));
+        }
+    }
+}
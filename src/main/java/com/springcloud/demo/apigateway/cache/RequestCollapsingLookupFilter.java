@@ -0,0 +1,80 @@
+package com.springcloud.demo.apigateway.cache;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Matches requests of routes with {@link RequestCollapsingFilter} against the ones in flight. Runs
+ * after the response cache lookup, so only misses are collapsed.
+ */
+@Component
+public class RequestCollapsingLookupFilter implements GlobalFilter, Ordered {
+
+    private final RequestCollapser requestCollapser;
+
+    public RequestCollapsingLookupFilter(RequestCollapser requestCollapser) {
+        this.requestCollapser = requestCollapser;
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER - 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestCollapsingFilter.CollapsingResponse response = exchange.getAttribute(RequestCollapsingFilter.RESPONSE_ATTRIBUTE);
+        if (response == null) {
+            return chain.filter(exchange);
+        }
+
+        String scope = response.getConfig().getScope().of(exchange);
+        if (scope == null) {
+            return chain.filter(exchange);
+        }
+
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "";
+        String query = exchange.getRequest().getURI().getRawQuery();
+        String key = routeId + ':' + exchange.getRequest().getPath().value() + (query != null ? '?' + query : "")
+                + '#' + scope;
+
+        RequestCollapser.InFlight flight = requestCollapser.join(key, response.getConfig().getWindow());
+        if (flight.isLeader()) {
+            requestCollapser.record(routeId, "leader");
+            response.lead(flight);
+            // The body is written after the chain completes, CollapsingResponse settles the success case
+            return chain.filter(exchange)
+                    .doOnError(throwable -> requestCollapser.abandoned(flight))
+                    .doOnCancel(() -> requestCollapser.abandoned(flight));
+        }
+
+        return flight.response()
+                .timeout(response.getConfig().getMaxWait(), Mono.empty())
+                .map(collapsed -> {
+                    requestCollapser.record(routeId, "collapsed");
+                    return replay(response.getDelegate(), collapsed);
+                })
+                .defaultIfEmpty(Mono.defer(() -> {
+                    requestCollapser.record(routeId, "fallback");
+                    return chain.filter(exchange);
+                }))
+                .flatMap(write -> write);
+    }
+
+    private static Mono<Void> replay(ServerHttpResponse response, RequestCollapser.CollapsedResponse collapsed) {
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().putAll(collapsed.headers());
+        response.getHeaders().setContentLength(collapsed.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(collapsed.body())));
+    }
+}
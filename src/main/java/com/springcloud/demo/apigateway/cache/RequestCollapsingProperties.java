@@ -0,0 +1,13 @@
+package com.springcloud.demo.apigateway.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.request-collapsing")
+public class RequestCollapsingProperties {
+
+    // Bigger responses are not replayed, the waiting requests are forwarded on their own
+    private DataSize maxBodySize = DataSize.ofKilobytes(256);
+}
@@ -0,0 +1,94 @@
+package com.springcloud.demo.apigateway.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Responses of read routes, bounded by their total size. Each resource prefix has a generation that
+ * every write increments, so a read started before a write never stores what the write replaced.
+ */
+public class ResponseCache {
+
+    private static final List<String> STORED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED);
+
+    private final SizedLruCache<ResponseCacheKey, CachedResponse> entries;
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public ResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.entries = new SizedLruCache<>(properties.getMaxSize().toBytes(), response -> response.body().length);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("gateway.response_cache.size", entries, SizedLruCache::bytes).baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("gateway.response_cache.entries", entries, SizedLruCache::size).register(meterRegistry);
+    }
+
+    public CachedResponse get(ResponseCacheKey key) {
+        CachedResponse response = entries.get(key);
+        boolean fresh = response != null && response.isFresh(System.currentTimeMillis());
+
+        meterRegistry.counter("gateway.response_cache.requests",
+                "route", key.routeId(), "result", fresh ? "hit" : "miss").increment();
+        return fresh ? response : null;
+    }
+
+    public long generation(String resourcePrefix) {
+        return generations.getOrDefault(resourcePrefix, 0L);
+    }
+
+    /**
+     * Copies the headers stored with an entry. Taken before the body is written, as compression
+     * changes Content-Encoding and ETag of the response while the cache records the identity body.
+     */
+    public static HttpHeaders storedHeaders(HttpHeaders responseHeaders) {
+        HttpHeaders headers = new HttpHeaders();
+        STORED_HEADERS.forEach(name -> {
+            List<String> values = responseHeaders.get(name);
+            if (values != null) {
+                headers.put(name, new ArrayList<>(values));
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    public void put(ResponseCacheKey key, long generation, HttpHeaders storedHeaders, byte[] body, long ttlMillis) {
+        if (generation != generation(key.resourcePrefix())) {
+            return;
+        }
+
+        CachedResponse response = new CachedResponse(storedHeaders, body, System.currentTimeMillis() + ttlMillis);
+
+        // Checked again under the lock, an invalidation may have run since the body was captured
+        synchronized (this) {
+            if (generation == generation(key.resourcePrefix())) {
+                entries.put(key, response);
+            }
+        }
+    }
+
+    public void invalidate(String resourcePrefix) {
+        synchronized (this) {
+            generations.merge(resourcePrefix, 1L, Long::sum);
+            entries.removeIf(key -> key.resourcePrefix().equals(resourcePrefix));
+        }
+        meterRegistry.counter("gateway.response_cache.invalidations", "prefix", resourcePrefix).increment();
+    }
+
+    // The first two segments, /api/rooms/5/images -> /api/rooms
+    public static String resourcePrefix(String path) {
+        int first = path.indexOf('/', 1);
+        if (first < 0) {
+            return path;
+        }
+        int second = path.indexOf('/', first + 1);
+        return second < 0 ? path : path.substring(0, second);
+    }
+}
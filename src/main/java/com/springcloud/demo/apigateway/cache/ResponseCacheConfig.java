@@ -0,0 +1,21 @@
+package com.springcloud.demo.apigateway.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({ResponseCacheProperties.class, RequestCollapsingProperties.class})
+public class ResponseCacheConfig {
+
+    @Bean
+    public ResponseCache responseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        return new ResponseCache(properties, meterRegistry);
+    }
+
+    @Bean
+    public RequestCollapser requestCollapser(MeterRegistry meterRegistry) {
+        return new RequestCollapser(meterRegistry);
+    }
+}
@@ -0,0 +1,106 @@
+package com.springcloud.demo.apigateway.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Opt-in cache of GET responses for read routes. This filter only decorates the response, the
+ * lookup is done by {@link ResponseCacheLookupFilter} once JwtAuthenticationFilter has identified
+ * the user.
+ */
+@Component
+public class ResponseCacheFilter extends AbstractGatewayFilterFactory<ResponseCacheFilter.Config> {
+
+    static final String RESPONSE_ATTRIBUTE = ResponseCacheFilter.class.getName() + ".response";
+
+    private final ResponseCache responseCache;
+    private final ResponseCacheProperties properties;
+
+    public ResponseCacheFilter(ResponseCache responseCache, ResponseCacheProperties properties) {
+        super(ResponseCacheFilter.Config.class);
+        this.responseCache = responseCache;
+        this.properties = properties;
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+        private Duration ttl = Duration.ofSeconds(5);
+        private CacheScope scope = CacheScope.USER;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Before NettyWriteResponseFilter, which would otherwise write to the undecorated response
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+
+            CachingResponse response = new CachingResponse(exchange.getResponse(), config);
+            exchange.getAttributes().put(RESPONSE_ATTRIBUTE, response);
+            return chain.filter(exchange.mutate().response(response).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    class CachingResponse extends ServerHttpResponseDecorator {
+
+        @Getter
+        private final Config config;
+
+        private ResponseCacheKey key;
+        private long generation;
+
+        CachingResponse(ServerHttpResponse delegate, Config config) {
+            super(delegate);
+            this.config = config;
+        }
+
+        // Called on a miss, the response is then stored once written
+        void store(ResponseCacheKey key, long generation) {
+            this.key = key;
+            this.generation = generation;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            if (key == null || status == null || status.value() != HttpStatus.OK.value() || noStore()) {
+                return super.writeWith(body);
+            }
+
+            // Compression, decorated below, changes the headers once the body reaches it
+            HttpHeaders headers = ResponseCache.storedHeaders(getHeaders());
+            return new BodyCaptureResponse(getDelegate(), (int) properties.getMaxObjectSize().toBytes(), captured ->
+                    responseCache.put(key, generation, headers, captured, config.getTtl().toMillis()))
+                    .writeWith(body);
+        }
+
+        // private is fine for USER scope, the entry is only served to the same user
+        private boolean noStore() {
+            String cacheControl = getHeaders().getCacheControl();
+            if (cacheControl == null) {
+                return false;
+            }
+            return cacheControl.contains(CacheControl.noStore().getHeaderValue())
+                    || (config.getScope() == CacheScope.ROLE && cacheControl.contains("private"));
+        }
+    }
+}
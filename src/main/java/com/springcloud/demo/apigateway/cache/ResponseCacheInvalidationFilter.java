@@ -0,0 +1,47 @@
+package com.springcloud.demo.apigateway.cache;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+/**
+ * Drops the cached responses under the resource prefix of every successful write, e.g. a POST to
+ * {@code /api/rooms} invalidates what {@link ResponseCacheFilter} kept for {@code /api/rooms/**}.
+ */
+@Component
+public class ResponseCacheInvalidationFilter extends AbstractGatewayFilterFactory<ResponseCacheInvalidationFilter.Config> {
+
+    private static final Set<HttpMethod> WRITE_METHODS = Set.of(
+            HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheInvalidationFilter(ResponseCache responseCache) {
+        super(ResponseCacheInvalidationFilter.Config.class);
+        this.responseCache = responseCache;
+    }
+
+    public static class Config {
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            if (!WRITE_METHODS.contains(exchange.getRequest().getMethod())) {
+                return chain.filter(exchange);
+            }
+
+            return chain.filter(exchange).then(Mono.fromRunnable(() -> {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                if (status != null && status.is2xxSuccessful()) {
+                    responseCache.invalidate(ResponseCache.resourcePrefix(exchange.getRequest().getPath().value()));
+                }
+            }));
+        };
+    }
+}
@@ -0,0 +1,8 @@
+package com.springcloud.demo.apigateway.cache;
+
+/**
+ * {@code scope} is the user id or the roles of the user, depending on the route. The resource
+ * prefix, e.g. {@code /api/rooms}, is what writes invalidate.
+ */
+public record ResponseCacheKey(String resourcePrefix, String routeId, String pathAndQuery, String scope) {
+}
@@ -0,0 +1,65 @@
+package com.springcloud.demo.apigateway.cache;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Answers requests of routes with {@link ResponseCacheFilter} from {@link ResponseCache}. Runs after
+ * the route filters, so only authenticated requests get here, and before an instance is chosen.
+ */
+@Component
+public class ResponseCacheLookupFilter implements GlobalFilter, Ordered {
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheLookupFilter(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public int getOrder() {
+        // Before RequestCollapsingLookupFilter, a hit never waits for a request in flight
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER - 2;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ResponseCacheFilter.CachingResponse response = exchange.getAttribute(ResponseCacheFilter.RESPONSE_ATTRIBUTE);
+        if (response == null) {
+            return chain.filter(exchange);
+        }
+
+        String scope = response.getConfig().getScope().of(exchange);
+        if (scope == null) {
+            return chain.filter(exchange);
+        }
+
+        String path = exchange.getRequest().getPath().value();
+        String query = exchange.getRequest().getURI().getRawQuery();
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String resourcePrefix = ResponseCache.resourcePrefix(path);
+        ResponseCacheKey key = new ResponseCacheKey(resourcePrefix, route != null ? route.getId() : "",
+                query != null ? path + '?' + query : path, scope);
+
+        CachedResponse cached = responseCache.get(key);
+        if (cached == null) {
+            response.store(key, responseCache.generation(resourcePrefix));
+            return chain.filter(exchange);
+        }
+
+        ServerHttpResponse delegate = response.getDelegate();
+        delegate.setStatusCode(HttpStatus.OK);
+        delegate.getHeaders().putAll(cached.headers());
+        delegate.getHeaders().setContentLength(cached.body().length);
+        return delegate.writeWith(Mono.just(delegate.bufferFactory().wrap(cached.body())));
+    }
+}
@@ -0,0 +1,14 @@
+package com.springcloud.demo.apigateway.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public class ResponseCacheProperties {
+
+    // Shared by every route using ResponseCacheFilter
+    private DataSize maxSize = DataSize.ofMegabytes(32);
+    private DataSize maxObjectSize = DataSize.ofKilobytes(256);
+}
@@ -0,0 +1,89 @@
+package com.springcloud.demo.apigateway.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Least recently used map bounded by the total size of its values rather than their count.
+ */
+public class SizedLruCache<K, V> {
+
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final ToLongFunction<V> sizeOf;
+    private final long maxBytes;
+    private long bytes;
+
+    public SizedLruCache(long maxBytes, ToLongFunction<V> sizeOf) {
+        this.maxBytes = maxBytes;
+        this.sizeOf = sizeOf;
+    }
+
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Returns the values evicted to make room, including a replaced value for the same key.
+     */
+    public synchronized List<V> put(K key, V value) {
+        List<V> evicted = new ArrayList<>();
+
+        V previous = entries.remove(key);
+        if (previous != null) {
+            bytes -= sizeOf.applyAsLong(previous);
+            evicted.add(previous);
+        }
+
+        long size = sizeOf.applyAsLong(value);
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (bytes + size > maxBytes && eldest.hasNext()) {
+            V victim = eldest.next().getValue();
+            eldest.remove();
+            bytes -= sizeOf.applyAsLong(victim);
+            evicted.add(victim);
+        }
+
+        entries.put(key, value);
+        bytes += size;
+        return evicted;
+    }
+
+    public synchronized V remove(K key) {
+        V value = entries.remove(key);
+        if (value != null) {
+            bytes -= sizeOf.applyAsLong(value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the values removed because their key matched.
+     */
+    public synchronized List<V> removeIf(Predicate<K> matches) {
+        List<V> removed = new ArrayList<>();
+
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, V> entry = iterator.next();
+            if (matches.test(entry.getKey())) {
+                iterator.remove();
+                bytes -= sizeOf.applyAsLong(entry.getValue());
+                removed.add(entry.getValue());
+            }
+        }
+        return removed;
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
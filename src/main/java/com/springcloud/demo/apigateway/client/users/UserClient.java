@@ -2,7 +2,7 @@ package com.springcloud.demo.apigateway.client.users;
 
 import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
 import com.springcloud.demo.apigateway.exceptions.SimpleException;
-import com.springcloud.demo.apigateway.monitoring.TracingUtils;
+import com.springcloud.demo.apigateway.monitoring.tracing.GatewaySpan;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatusCode;
@@ -23,11 +23,12 @@ public class UserClient {
 
     public Mono<UserDTO> findByEmail(String email) {
 
-        return webClientBuilder
+        return Mono.deferContextual(context -> webClientBuilder
                 .build()
                 .get()
                 .uri(usersUri + "/api/users/email/" + email)
-                .header("X-Amzn-Trace-Id", TracingUtils.getXRayHeader())
+                .headers(headers -> context.<GatewaySpan>getOrEmpty(GatewaySpan.class)
+                        .ifPresent(span -> span.injectHeaders(headers::set)))
                 .retrieve()
                 .onStatus(HttpStatusCode::is4xxClientError,
                         response -> {
@@ -42,6 +43,6 @@ public class UserClient {
                         }
 
                 )
-                .bodyToMono(UserDTO.class);
+                .bodyToMono(UserDTO.class));
     }
 }
@@ -0,0 +1,57 @@
+package com.springcloud.demo.apigateway.compression;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+
+/**
+ * Picks the coding of a response from the {@code Accept-Encoding} header of the request.
+ */
+final class AcceptEncoding {
+
+    private AcceptEncoding() {
+    }
+
+    // Null when the client accepts none of the codings, or only with q=0
+    static ContentCoding negotiate(HttpHeaders headers, List<ContentCoding> enabled) {
+        List<String> values = headers.get(HttpHeaders.ACCEPT_ENCODING);
+        if (values == null) {
+            return null;
+        }
+
+        ContentCoding best = null;
+        double bestWeight = 0;
+        for (String value : values) {
+            for (String element : value.split(",")) {
+                int separator = element.indexOf(';');
+                String token = (separator < 0 ? element : element.substring(0, separator)).trim();
+                double weight = separator < 0 ? 1.0 : weight(element.substring(separator + 1));
+
+                for (ContentCoding coding : enabled) {
+                    boolean matches = token.equalsIgnoreCase(coding.token()) || token.equals("*");
+                    if (matches && coding.isAvailable() && weight > 0 && isBetter(coding, weight, best, bestWeight)) {
+                        best = coding;
+                        bestWeight = weight;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static boolean isBetter(ContentCoding coding, double weight, ContentCoding best, double bestWeight) {
+        return best == null || weight > bestWeight || (weight == bestWeight && coding.ordinal() < best.ordinal());
+    }
+
+    private static double weight(String parameters) {
+        String parameter = parameters.trim();
+        if (!parameter.startsWith("q=")) {
+            return 1.0;
+        }
+        try {
+            return Double.parseDouble(parameter.substring(2).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
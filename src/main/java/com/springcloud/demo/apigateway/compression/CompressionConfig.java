@@ -0,0 +1,16 @@
+package com.springcloud.demo.apigateway.compression;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CompressionProperties.class)
+public class CompressionConfig {
+
+    @Bean
+    public PrecompressedCache precompressedCache(CompressionProperties properties, MeterRegistry meterRegistry) {
+        return new PrecompressedCache(properties, meterRegistry);
+    }
+}
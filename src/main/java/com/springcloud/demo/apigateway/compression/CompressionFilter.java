@@ -0,0 +1,235 @@
+package com.springcloud.demo.apigateway.compression;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.Setter;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/**
+ * Compresses text responses of a route with the coding negotiated from {@code Accept-Encoding}.
+ * Bodies are compressed as they stream through, and responses with a strong ETag keep their
+ * compressed variant in {@link PrecompressedCache}.
+ */
+@Component
+public class CompressionFilter extends AbstractGatewayFilterFactory<CompressionFilter.Config> {
+
+    private static final List<MediaType> COMPRESSIBLE_TYPES = List.of(
+            MediaType.APPLICATION_JSON, new MediaType("application", "*+json"),
+            MediaType.APPLICATION_XML, new MediaType("application", "*+xml"),
+            new MediaType("application", "javascript"), MediaType.TEXT_HTML, MediaType.TEXT_PLAIN,
+            new MediaType("text", "css"), new MediaType("text", "csv"), MediaType.TEXT_XML);
+
+    private final CompressionProperties properties;
+    private final PrecompressedCache precompressedCache;
+    private final MeterRegistry meterRegistry;
+
+    public CompressionFilter(CompressionProperties properties, PrecompressedCache precompressedCache,
+                             MeterRegistry meterRegistry) {
+        super(CompressionFilter.Config.class);
+        this.properties = properties;
+        this.precompressedCache = precompressedCache;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+        // Below this size the coding overhead outweighs what is saved on the wire
+        private DataSize minSize = DataSize.ofKilobytes(1);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Decorates the response before the cache filters do, so they store and replay the identity
+        // body and each client still gets the coding it asked for
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() == HttpMethod.HEAD) {
+                return chain.filter(exchange);
+            }
+
+            ContentCoding coding = AcceptEncoding.negotiate(request.getHeaders(), properties.getCodings());
+            String pathAndQuery = request.getURI().getRawQuery() == null ? request.getURI().getRawPath()
+                    : request.getURI().getRawPath() + "?" + request.getURI().getRawQuery();
+
+            // Upstream sends identity bodies, which the caches can store and serve to any client
+            ServerHttpRequest identityRequest = request.mutate()
+                    .headers(headers -> headers.set(HttpHeaders.ACCEPT_ENCODING, "identity"))
+                    .build();
+            CompressingResponse response = new CompressingResponse(exchange.getResponse(), coding, config, pathAndQuery);
+            return chain.filter(exchange.mutate().request(identityRequest).response(response).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2);
+    }
+
+    class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final ContentCoding coding;
+        private final Config config;
+        private final String pathAndQuery;
+
+        private ByteArrayOutputStream variant;
+        private long bytesIn;
+        private long bytesOut;
+
+        CompressingResponse(ServerHttpResponse delegate, ContentCoding coding, Config config, String pathAndQuery) {
+            super(delegate);
+            this.coding = coding;
+            this.config = config;
+            this.pathAndQuery = pathAndQuery;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!isCompressible()) {
+                return super.writeWith(body);
+            }
+
+            HttpHeaders headers = getHeaders();
+            if (!headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING)) {
+                headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            if (coding == null) {
+                return super.writeWith(body);
+            }
+
+            // Chunked bodies have no length, so chunks are held until the threshold is reached. The
+            // headers can still change then, they are only committed with the first written chunk
+            long minSize = config.getMinSize().toBytes();
+            long[] held = {0};
+            Flux<DataBuffer> encoded = Flux.from(body)
+                    .bufferUntil(buffer -> (held[0] += buffer.readableByteCount()) >= minSize)
+                    .switchOnFirst((first, chunks) -> {
+                        Flux<DataBuffer> buffers = chunks.flatMapIterable(chunk -> chunk);
+                        if (!first.hasValue() || held[0] < minSize) {
+                            return buffers;
+                        }
+                        return encode(buffers);
+                    })
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+            return super.writeWith(encoded);
+        }
+
+        private Flux<DataBuffer> encode(Flux<DataBuffer> body) {
+            // The ETag of the identity body no longer matches byte for byte, ranges would refer to it
+            HttpHeaders headers = getHeaders();
+            String etag = headers.getETag();
+            boolean strongEtag = etag != null && !etag.startsWith("W/");
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.remove(HttpHeaders.ACCEPT_RANGES);
+            headers.set(HttpHeaders.CONTENT_ENCODING, coding.token());
+            if (strongEtag) {
+                headers.setETag("W/" + etag);
+            }
+            meterRegistry.counter("gateway.compression.responses", "coding", coding.token()).increment();
+
+            if (!strongEtag || isNoStore()) {
+                return compress(body, null);
+            }
+
+            String key = PrecompressedCache.key(coding, pathAndQuery, etag);
+            byte[] cached = precompressedCache.get(key);
+            if (cached == null) {
+                return compress(body, key);
+            }
+
+            headers.setContentLength(cached.length);
+            return body.doOnNext(DataBufferUtils::release)
+                    .thenMany(Mono.fromSupplier(() -> bufferFactory().wrap(cached)));
+        }
+
+        private Flux<DataBuffer> compress(Flux<DataBuffer> body, String key) {
+            StreamingEncoder encoder = new StreamingEncoder(coding);
+            variant = key != null ? new ByteArrayOutputStream() : null;
+
+            return body
+                    .map(buffer -> {
+                        try {
+                            bytesIn += buffer.readableByteCount();
+                            return encoder.encode(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(encoder::finish))
+                    .filter(bytes -> bytes.length > 0)
+                    .doOnNext(this::capture)
+                    .doOnComplete(() -> complete(key))
+                    .map(bytes -> bufferFactory().wrap(bytes))
+                    .doFinally(signal -> encoder.close());
+        }
+
+        private void capture(byte[] bytes) {
+            bytesOut += bytes.length;
+            if (variant == null) {
+                return;
+            }
+            if (variant.size() + bytes.length > properties.getPrecompressedMaxObjectSize().toBytes()) {
+                variant = null;
+                return;
+            }
+            variant.writeBytes(bytes);
+        }
+
+        private void complete(String key) {
+            meterRegistry.counter("gateway.compression.bytes", "coding", coding.token(), "stage", "in")
+                    .increment(bytesIn);
+            meterRegistry.counter("gateway.compression.bytes", "coding", coding.token(), "stage", "out")
+                    .increment(bytesOut);
+            if (variant != null) {
+                precompressedCache.put(key, variant.toByteArray());
+                variant = null;
+            }
+        }
+
+        private boolean isCompressible() {
+            HttpHeaders headers = getHeaders();
+            HttpStatusCode status = getStatusCode();
+            if (status == null || !status.is2xxSuccessful() || status.value() == 204) {
+                return false;
+            }
+
+            String encoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+            if (encoding != null && !encoding.equalsIgnoreCase("identity")) {
+                return false;
+            }
+
+            String cacheControl = headers.getCacheControl();
+            if (cacheControl != null && cacheControl.contains("no-transform")) {
+                return false;
+            }
+
+            long length = headers.getContentLength();
+            if (length >= 0 && length < config.getMinSize().toBytes()) {
+                return false;
+            }
+
+            MediaType contentType = headers.getContentType();
+            return contentType != null && COMPRESSIBLE_TYPES.stream().anyMatch(type -> type.includes(contentType));
+        }
+
+        private boolean isNoStore() {
+            String cacheControl = getHeaders().getCacheControl();
+            return cacheControl != null && cacheControl.contains("no-store");
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.springcloud.demo.apigateway.compression;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.compression")
+public class CompressionProperties {
+
+    // Codings offered to clients, a coding whose native library is missing is skipped
+    private List<ContentCoding> codings = List.of(ContentCoding.ZSTD, ContentCoding.GZIP);
+
+    // Compressed variants of responses with a strong ETag, shared by every route
+    private DataSize precompressedMaxSize = DataSize.ofMegabytes(16);
+    private DataSize precompressedMaxObjectSize = DataSize.ofKilobytes(512);
+}
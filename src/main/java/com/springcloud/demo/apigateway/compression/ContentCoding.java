@@ -0,0 +1,60 @@
+package com.springcloud.demo.apigateway.compression;
+
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import com.github.luben.zstd.util.Native;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Codings the gateway can apply to responses, in order of preference when the client weights them
+ * equally.
+ */
+@Slf4j
+public enum ContentCoding {
+
+    ZSTD("zstd") {
+        @Override
+        public OutputStream encoder(OutputStream out) throws IOException {
+            // Level 3 is the zstd default, far cheaper than gzip for a better ratio
+            return new ZstdOutputStreamNoFinalizer(out, 3);
+        }
+    },
+    GZIP("gzip") {
+        @Override
+        public OutputStream encoder(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, 8192);
+        }
+    };
+
+    private static final boolean ZSTD_AVAILABLE = loadZstd();
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    public String token() {
+        return token;
+    }
+
+    // zstd needs the native library of zstd-jni, which does not exist for every platform
+    public boolean isAvailable() {
+        return this != ZSTD || ZSTD_AVAILABLE;
+    }
+
+    public abstract OutputStream encoder(OutputStream out) throws IOException;
+
+    private static boolean loadZstd() {
+        try {
+            Native.load();
+            return true;
+        } catch (Throwable throwable) {
+            log.info("zstd is not available, responses are only compressed with gzip: {}", throwable.toString());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.springcloud.demo.apigateway.compression;
+
+import com.springcloud.demo.apigateway.cache.SizedLruCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Compressed bodies keyed by coding, path and strong ETag, so a representation that did not change
+ * is compressed once rather than on every request.
+ */
+public class PrecompressedCache {
+
+    private final SizedLruCache<String, byte[]> variants;
+    private final MeterRegistry meterRegistry;
+
+    public PrecompressedCache(CompressionProperties properties, MeterRegistry meterRegistry) {
+        this.variants = new SizedLruCache<>(properties.getPrecompressedMaxSize().toBytes(), body -> body.length);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("gateway.compression.precompressed.size", variants, SizedLruCache::bytes).baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("gateway.compression.precompressed.entries", variants, SizedLruCache::size)
+                .register(meterRegistry);
+    }
+
+    public byte[] get(String key) {
+        byte[] body = variants.get(key);
+        meterRegistry.counter("gateway.compression.precompressed.requests", "result", body != null ? "hit" : "miss")
+                .increment();
+        return body;
+    }
+
+    public void put(String key, byte[] body) {
+        variants.put(key, body);
+    }
+
+    static String key(ContentCoding coding, String pathAndQuery, String etag) {
+        return coding.token() + ' ' + etag + ' ' + pathAndQuery;
+    }
+}
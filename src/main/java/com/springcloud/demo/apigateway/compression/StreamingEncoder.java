@@ -0,0 +1,71 @@
+package com.springcloud.demo.apigateway.compression;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Compresses a body chunk by chunk, each call returns what the encoder has produced so far.
+ */
+final class StreamingEncoder implements AutoCloseable {
+
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(8192);
+    private final OutputStream encoder;
+    private byte[] scratch = new byte[8192];
+    private boolean closed;
+
+    StreamingEncoder(ContentCoding coding) {
+        try {
+            this.encoder = coding.encoder(sink);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    byte[] encode(DataBuffer buffer) {
+        int length = buffer.readableByteCount();
+        if (scratch.length < length) {
+            scratch = new byte[length];
+        }
+        buffer.read(scratch, 0, length);
+        return encode(scratch, 0, length);
+    }
+
+    byte[] encode(byte[] bytes, int offset, int length) {
+        try {
+            encoder.write(bytes, offset, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return drain();
+    }
+
+    // Writes the trailer of the coding
+    byte[] finish() {
+        close();
+        return drain();
+    }
+
+    // Releases the native resources of the encoder, also when the body is cancelled midway
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            encoder.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] drain() {
+        byte[] bytes = sink.toByteArray();
+        sink.reset();
+        return bytes;
+    }
+}
@@ -0,0 +1,84 @@
+package com.springcloud.demo.apigateway.concurrency;
+
+import com.springcloud.demo.apigateway.deadline.Deadline;
+import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Bounds the calls in flight to the service of a route with an adaptive limit. The limit is
+ * measured on the proxied call alone, requests answered by the caches never reach this filter.
+ */
+@Component
+public class AdaptiveConcurrencyFilter extends AbstractGatewayFilterFactory<AdaptiveConcurrencyFilter.Config> {
+
+    private static final SimpleException OVER_LIMIT = new SimpleException(
+            HttpStatus.SERVICE_UNAVAILABLE.value(), "Service overloaded");
+
+    private final ConcurrencyLimiters limiters;
+
+    public AdaptiveConcurrencyFilter(ConcurrencyLimiters limiters) {
+        super(AdaptiveConcurrencyFilter.Config.class);
+        this.limiters = limiters;
+    }
+
+    public static class Config {
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Right before the proxied call, after the load balancer and the cache lookups
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            String service = service(exchange);
+            ConcurrencyLimiter limiter = limiters.get(service);
+
+            if (!limiter.tryAcquire()) {
+                limiters.record(service, "rejected");
+                exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                return Mono.error(OVER_LIMIT);
+            }
+
+            limiters.record(service, "accepted");
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                    .doFinally(signal -> {
+                        if (signal != SignalType.CANCEL) {
+                            limiter.release(System.nanoTime() - start);
+                        } else if (deadlineExpired(exchange)) {
+                            // DeadlineFilter cancels the call once the time of the request is over
+                            limiters.record(service, "dropped");
+                            limiter.drop();
+                        } else {
+                            limiter.ignore();
+                        }
+                    });
+        }, NettyRoutingFilter.ORDER - 2);
+    }
+
+    private static boolean deadlineExpired(ServerWebExchange exchange) {
+        Deadline deadline = Deadline.of(exchange);
+        return deadline != null && !deadline.remaining().isPositive();
+    }
+
+    // lb://rooms-ms is limited as rooms-ms, routes to a fixed URI by their own id
+    private static String service(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return "unknown";
+        }
+        if ("lb".equals(route.getUri().getScheme()) && route.getUri().getHost() != null) {
+            return route.getUri().getHost();
+        }
+        return route.getId();
+    }
+}
@@ -0,0 +1,17 @@
+package com.springcloud.demo.apigateway.concurrency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public ConcurrencyLimiters concurrencyLimiters(ConcurrencyLimitProperties properties,
+                                                   MeterRegistry meterRegistry) {
+        return new ConcurrencyLimiters(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,22 @@
+package com.springcloud.demo.apigateway.concurrency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private int initialLimit = 20;
+    private int minLimit = 2;
+    private int maxLimit = 200;
+
+    // How much slower than the long term RTT a sample can be before the limit shrinks
+    private double rttTolerance = 1.5;
+
+    // Weight of each new estimate, higher reacts faster and oscillates more
+    private double smoothing = 0.2;
+
+    // Samples averaged by the long term RTT
+    private int longWindow = 600;
+}
@@ -0,0 +1,56 @@
+package com.springcloud.demo.apigateway.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calls in flight to one service, bounded by a {@link GradientLimit}. Acquiring never waits, a
+ * call over the limit is rejected right away.
+ */
+public class ConcurrencyLimiter {
+
+    private final GradientLimit gradientLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    ConcurrencyLimiter(ConcurrencyLimitProperties properties) {
+        this.gradientLimit = new GradientLimit(properties);
+        this.limit = properties.getInitialLimit();
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // The call ended with a response or an error, its RTT feeds the limit
+    public void release(long rttNanos) {
+        int current = inFlight.getAndDecrement();
+        limit = gradientLimit.update(rttNanos, current);
+    }
+
+    // The call ran out of time, the service is too slow to answer within the deadline
+    public void drop() {
+        inFlight.decrementAndGet();
+        limit = gradientLimit.drop();
+    }
+
+    // The client went away, the RTT of the call says nothing about the service
+    public void ignore() {
+        inFlight.decrementAndGet();
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,41 @@
+package com.springcloud.demo.apigateway.concurrency;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link ConcurrencyLimiter} per service, shared by every route to it.
+ */
+public class ConcurrencyLimiters {
+
+    private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final ConcurrencyLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public ConcurrencyLimiters(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public ConcurrencyLimiter get(String service) {
+        return limiters.computeIfAbsent(service, this::create);
+    }
+
+    public void record(String service, String result) {
+        meterRegistry.counter("gateway.concurrency_limit.requests", "service", service, "result", result).increment();
+    }
+
+    private ConcurrencyLimiter create(String service) {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties);
+        Gauge.builder("gateway.concurrency_limit.limit", limiter, ConcurrencyLimiter::limit)
+                .tag("service", service)
+                .register(meterRegistry);
+        Gauge.builder("gateway.concurrency_limit.in_flight", limiter, ConcurrencyLimiter::inFlight)
+                .tag("service", service)
+                .register(meterRegistry);
+        return limiter;
+    }
+}
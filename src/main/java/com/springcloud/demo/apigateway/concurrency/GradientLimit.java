@@ -0,0 +1,56 @@
+package com.springcloud.demo.apigateway.concurrency;
+
+/**
+ * Concurrency limit following the ratio between the long term average RTT and the latest sample.
+ * While the service answers as fast as usual the limit grows by a queue of sqrt(limit), once
+ * samples get slower it shrinks towards half of it. The gradient is clamped to [0.5, 1] and
+ * smoothed, so a sample lowers the limit by at most smoothing / 2, a tenth with the default 0.2.
+ * A call dropped by its deadline counts as the slowest possible sample.
+ */
+final class GradientLimit {
+
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final ConcurrencyLimitProperties properties;
+
+    private double limit;
+    private double longRtt;
+
+    GradientLimit(ConcurrencyLimitProperties properties) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+    }
+
+    synchronized int update(long rttNanos, int inFlight) {
+        double rtt = Math.max(rttNanos, 1);
+        if (longRtt == 0) {
+            longRtt = rtt;
+        } else {
+            longRtt += (rtt - longRtt) / properties.getLongWindow();
+        }
+
+        // Once the service recovers, the long term RTT would otherwise keep the limit low for long
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, properties.getRttTolerance() * longRtt / rtt));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        double next = limit * (1 - properties.getSmoothing()) + estimate * properties.getSmoothing();
+
+        // Without enough traffic the samples say nothing about a higher limit
+        if (next > limit && inFlight < limit / 2) {
+            return (int) limit;
+        }
+
+        limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), next));
+        return (int) limit;
+    }
+
+    // No RTT to learn from, the long term average is left as is
+    synchronized int drop() {
+        double next = limit * (1 - properties.getSmoothing()) + limit * MIN_GRADIENT * properties.getSmoothing();
+        limit = Math.max(properties.getMinLimit(), next);
+        return (int) limit;
+    }
+}
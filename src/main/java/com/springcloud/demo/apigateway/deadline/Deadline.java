@@ -0,0 +1,36 @@
+package com.springcloud.demo.apigateway.deadline;
+
+import org.springframework.web.server.ServerWebExchange;
+
+import java.time.Duration;
+
+/**
+ * Point in time a request has to be answered by, kept as an exchange attribute. It is measured
+ * with {@link System#nanoTime()}, so only the remaining time leaves the gateway.
+ */
+public class Deadline {
+
+    public static final String ATTRIBUTE = Deadline.class.getName();
+
+    private final long expiresAt;
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    public static Deadline of(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTRIBUTE);
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(expiresAt - System.nanoTime());
+    }
+
+    public Deadline earliest(Deadline other) {
+        return other.expiresAt - expiresAt < 0 ? other : this;
+    }
+}
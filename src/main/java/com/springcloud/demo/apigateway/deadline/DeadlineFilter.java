@@ -0,0 +1,90 @@
+package com.springcloud.demo.apigateway.deadline;
+
+import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Starts the deadline of a request from the timeout of its route, or from the one sent by the
+ * caller when that is shorter, and cancels whatever is still running once it passes. JWT checks
+ * and user lookups are inside the deadline, so they shrink what is left for the downstream call.
+ * The deadline ends when the service answers: the response body (e.g. a large image) is streamed
+ * however long it takes, as cutting it would leave the client with a truncated 200.
+ */
+@Component
+@RequiredArgsConstructor
+public class DeadlineFilter implements GlobalFilter, Ordered {
+
+    static final SimpleException DEADLINE_EXCEEDED = new SimpleException(
+            HttpStatus.GATEWAY_TIMEOUT.value(), "Deadline exceeded");
+
+    private final DeadlineProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    // Right after load shedding, shed requests do not need a timer
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 3;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "unknown";
+
+        Deadline deadline = Deadline.after(properties.timeout(routeId));
+        Duration callerTimeout = callerTimeout(exchange);
+        if (callerTimeout != null) {
+            deadline = deadline.earliest(Deadline.after(callerTimeout));
+        }
+        exchange.getAttributes().put(Deadline.ATTRIBUTE, deadline);
+
+        Duration remaining = deadline.remaining();
+        if (remaining.isNegative() || remaining.isZero()) {
+            return exceeded(routeId, "early");
+        }
+        Mono<Long> expired = Mono.delay(remaining)
+                .filter(tick -> !answered(exchange))
+                .switchIfEmpty(Mono.never());
+        return chain.filter(exchange)
+                .timeout(expired, Mono.defer(() -> exceeded(routeId, "timeout")));
+    }
+
+    // Response headers from the service, or a response the gateway started on its own (e.g. from a cache)
+    private static boolean answered(ServerWebExchange exchange) {
+        return exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR) != null
+                || exchange.getResponse().isCommitted();
+    }
+
+    Mono<Void> exceeded(String routeId, String stage) {
+        meterRegistry.counter("gateway.deadline.exceeded", "route", routeId, "stage", stage).increment();
+        return Mono.error(DEADLINE_EXCEEDED);
+    }
+
+    private Duration callerTimeout(ServerWebExchange exchange) {
+        String value = exchange.getRequest().getHeaders().getFirst(properties.getHeader());
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
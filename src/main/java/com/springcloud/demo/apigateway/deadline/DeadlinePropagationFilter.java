@@ -0,0 +1,47 @@
+package com.springcloud.demo.apigateway.deadline;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Sends the time left to the downstream service, or gives up on the call when too little is left
+ * for it to be answered. Runs on every attempt, so retries get what the previous ones left.
+ */
+@Component
+@Order(NettyRoutingFilter.ORDER - 3)
+@RequiredArgsConstructor
+public class DeadlinePropagationFilter implements GlobalFilter {
+
+    private final DeadlineProperties properties;
+    private final DeadlineFilter deadlineFilter;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Deadline deadline = Deadline.of(exchange);
+        if (deadline == null) {
+            return chain.filter(exchange);
+        }
+
+        Duration remaining = deadline.remaining();
+        if (remaining.compareTo(properties.getMinRemaining()) < 0) {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            return deadlineFilter.exceeded(route != null ? route.getId() : "unknown", "early");
+        }
+
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> headers.set(properties.getHeader(), Long.toString(remaining.toMillis())))
+                .build();
+        return chain.filter(exchange.mutate().request(request).build());
+    }
+}
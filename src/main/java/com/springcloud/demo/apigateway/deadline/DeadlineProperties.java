@@ -0,0 +1,29 @@
+package com.springcloud.demo.apigateway.deadline;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.deadline")
+public class DeadlineProperties {
+
+    private boolean enabled = true;
+
+    // Total time of a request in the gateway, routes not listed get the default
+    private Duration defaultTimeout = Duration.ofSeconds(10);
+    private Map<String, Duration> timeouts = new HashMap<>();
+
+    // Remaining milliseconds, read from callers and sent to the downstream service
+    private String header = "X-Request-Deadline";
+
+    // Requests left with less than this are not proxied at all
+    private Duration minRemaining = Duration.ofMillis(10);
+
+    public Duration timeout(String routeId) {
+        return timeouts.getOrDefault(routeId, defaultTimeout);
+    }
+}
@@ -0,0 +1,152 @@
+package com.springcloud.demo.apigateway.docs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Fetches the OpenAPI document of every service with a {@code *-doc} route in parallel and keeps the
+ * merged result. Once it is older than the refresh interval it is still served while a single
+ * background refresh runs. A service that fails keeps its last document.
+ */
+@Slf4j
+@Component
+public class OpenApiAggregator {
+
+    private static final String DOC_ROUTE_SUFFIX = "-doc";
+    private static final SimpleException DOCS_UNAVAILABLE = new SimpleException(
+            HttpStatus.SERVICE_UNAVAILABLE.value(), "API docs unavailable");
+
+    private final RouteLocator routeLocator;
+    private final WebClient loadBalancedClient;
+    private final WebClient directClient;
+    private final ObjectMapper objectMapper;
+    private final OpenApiMerger merger;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, JsonNode> lastDocuments = new ConcurrentHashMap<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Mono<OpenApiDocument> document;
+
+    @Value("${gateway.docs.refresh-interval:5m}")
+    private Duration refreshInterval;
+
+    @Value("${gateway.docs.timeout:5s}")
+    private Duration timeout;
+
+    public OpenApiAggregator(RouteLocator routeLocator, WebClient.Builder webClientBuilder, ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry) {
+        this.routeLocator = routeLocator;
+        this.loadBalancedClient = webClientBuilder.build();
+        this.directClient = WebClient.create();
+        this.objectMapper = objectMapper;
+        this.merger = new OpenApiMerger(objectMapper);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Mono<OpenApiDocument> document() {
+        Mono<OpenApiDocument> current = document;
+        if (current == null) {
+            synchronized (this) {
+                if (document == null) {
+                    // A failed first aggregation is not kept, the next request tries again
+                    document = aggregate().doOnError(throwable -> document = null).cache();
+                }
+                return document;
+            }
+        }
+
+        return current.doOnNext(existing -> {
+            if (System.currentTimeMillis() - existing.createdAt() > refreshInterval.toMillis()) {
+                refreshInBackground();
+            }
+        });
+    }
+
+    private void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        aggregate()
+                .doFinally(signal -> refreshing.set(false))
+                .subscribe(refreshed -> document = Mono.just(refreshed),
+                        throwable -> log.warn("Could not refresh the OpenAPI document", throwable));
+    }
+
+    private Mono<OpenApiDocument> aggregate() {
+        return routeLocator.getRoutes()
+                .filter(route -> route.getId().endsWith(DOC_ROUTE_SUFFIX))
+                .flatMap(this::fetch)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, TreeMap::new)
+                .flatMap(documents -> documents.isEmpty()
+                        ? Mono.error(DOCS_UNAVAILABLE)
+                        : Mono.fromCallable(() -> encode(merger.merge(documents))));
+    }
+
+    private Mono<Map.Entry<String, JsonNode>> fetch(Route route) {
+        String service = route.getId().substring(0, route.getId().length() - DOC_ROUTE_SUFFIX.length());
+        URI uri = route.getUri();
+        boolean loadBalanced = "lb".equals(uri.getScheme());
+        String base = loadBalanced ? "http://" + uri.getHost() : uri.toString();
+        WebClient client = loadBalanced ? loadBalancedClient : directClient;
+
+        return client.get()
+                .uri(base + "/api/" + service + "/v3/api-docs")
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(timeout)
+                .doOnNext(fetched -> {
+                    lastDocuments.put(service, fetched);
+                    meterRegistry.counter("gateway.docs.fetches", "service", service, "result", "success").increment();
+                })
+                .onErrorResume(throwable -> {
+                    log.warn("Could not fetch the OpenAPI document of {}: {}", service, throwable.toString());
+                    meterRegistry.counter("gateway.docs.fetches", "service", service, "result", "failure").increment();
+                    return Mono.justOrEmpty(lastDocuments.get(service));
+                })
+                .map(fetched -> Map.entry(service, fetched));
+    }
+
+    private OpenApiDocument encode(JsonNode merged) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(merged);
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            String hash = HexFormat.of().formatHex(digest, 0, 16);
+            return new OpenApiDocument(json, compressed.toByteArray(),
+                    '"' + hash + '"', '"' + hash + "-gzip\"", System.currentTimeMillis());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.springcloud.demo.apigateway.docs;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * One OpenAPI document for every service, so a doc page load is answered by the gateway alone.
+ */
+@RestController
+@RequiredArgsConstructor
+public class OpenApiController {
+
+    private final OpenApiAggregator openApiAggregator;
+
+    @GetMapping(value = "/v3/api-docs", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<byte[]>> apiDocs(ServerWebExchange exchange) {
+        boolean gzip = acceptsGzip(exchange.getRequest().getHeaders());
+        return openApiAggregator.document().map(document -> {
+            // Validated against the representation this request would get
+            if (exchange.checkNotModified(document.etag(gzip))) {
+                return ResponseEntity.status(exchange.getResponse().getStatusCode()).build();
+            }
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .eTag(document.etag(gzip))
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .contentType(MediaType.APPLICATION_JSON);
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return response.body(document.body(gzip));
+        });
+    }
+
+    private static boolean acceptsGzip(HttpHeaders headers) {
+        for (String value : headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : value.split(",")) {
+                String trimmed = coding.trim();
+                if (trimmed.startsWith("gzip") && !trimmed.replace(" ", "").endsWith(";q=0")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
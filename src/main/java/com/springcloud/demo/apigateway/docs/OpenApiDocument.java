@@ -0,0 +1,16 @@
+package com.springcloud.demo.apigateway.docs;
+
+/**
+ * The merged OpenAPI document, encoded once per refresh so requests only copy bytes. Each
+ * encoding has its own strong ETag, the two representations are not byte for byte equal.
+ */
+public record OpenApiDocument(byte[] json, byte[] gzip, String jsonEtag, String gzipEtag, long createdAt) {
+
+    public byte[] body(boolean gzipped) {
+        return gzipped ? gzip : json;
+    }
+
+    public String etag(boolean gzipped) {
+        return gzipped ? gzipEtag : jsonEtag;
+    }
+}
@@ -0,0 +1,105 @@
+package com.springcloud.demo.apigateway.docs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges the OpenAPI documents of the services into one. Paths are prefixed with the gateway path of
+ * their service when they are not already, and components whose name is taken by a different
+ * definition of another service are renamed {@code <service>.<name>} along with their references.
+ */
+class OpenApiMerger {
+
+    private static final String COMPONENTS_REF = "#/components/";
+
+    private final ObjectMapper objectMapper;
+
+    OpenApiMerger(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    ObjectNode merge(Map<String, JsonNode> documents) {
+        ObjectNode merged = objectMapper.createObjectNode();
+        merged.put("openapi", "3.0.1");
+        merged.putObject("info").put("title", "API Gateway").put("version", "1.0");
+        merged.putArray("servers").addObject().put("url", "/");
+        ObjectNode paths = merged.putObject("paths");
+        ObjectNode components = merged.putObject("components");
+        Set<String> tags = new LinkedHashSet<>();
+        ArrayNode mergedTags = merged.putArray("tags");
+
+        documents.forEach((service, original) -> {
+            JsonNode document = renameConflicts(service, original.deepCopy(), components);
+
+            String prefix = "/api/" + service;
+            document.path("paths").fields().forEachRemaining(path -> {
+                String rewritten = path.getKey().startsWith(prefix) ? path.getKey() : prefix + path.getKey();
+                paths.set(rewritten, path.getValue());
+            });
+
+            document.path("components").fields().forEachRemaining(type -> {
+                ObjectNode mergedType = components.has(type.getKey())
+                        ? (ObjectNode) components.get(type.getKey())
+                        : components.putObject(type.getKey());
+                type.getValue().fields().forEachRemaining(component ->
+                        mergedType.set(component.getKey(), component.getValue()));
+            });
+
+            for (JsonNode tag : document.path("tags")) {
+                if (tags.add(tag.path("name").asText())) {
+                    mergedTags.add(tag);
+                }
+            }
+        });
+        return merged;
+    }
+
+    private JsonNode renameConflicts(String service, JsonNode document, ObjectNode merged) {
+        Map<String, String> renames = new HashMap<>();
+
+        document.path("components").fields().forEachRemaining(type -> {
+            JsonNode existing = merged.path(type.getKey());
+            Iterator<Map.Entry<String, JsonNode>> components = type.getValue().fields();
+            Map<String, JsonNode> renamed = new HashMap<>();
+
+            while (components.hasNext()) {
+                Map.Entry<String, JsonNode> component = components.next();
+                JsonNode other = existing.get(component.getKey());
+                if (other != null && !other.equals(component.getValue())) {
+                    String name = service + '.' + component.getKey();
+                    renames.put(COMPONENTS_REF + type.getKey() + '/' + component.getKey(),
+                            COMPONENTS_REF + type.getKey() + '/' + name);
+                    renamed.put(name, component.getValue());
+                    components.remove();
+                }
+            }
+            ((ObjectNode) type.getValue()).setAll(renamed);
+        });
+
+        if (!renames.isEmpty()) {
+            rewriteRefs(document, renames);
+        }
+        return document;
+    }
+
+    private static void rewriteRefs(JsonNode node, Map<String, String> renames) {
+        if (node instanceof ObjectNode object) {
+            JsonNode ref = object.get("$ref");
+            if (ref != null && ref.isTextual() && renames.containsKey(ref.asText())) {
+                object.set("$ref", TextNode.valueOf(renames.get(ref.asText())));
+            }
+            object.elements().forEachRemaining(child -> rewriteRefs(child, renames));
+        } else if (node instanceof ArrayNode array) {
+            array.elements().forEachRemaining(child -> rewriteRefs(child, renames));
+        }
+    }
+}
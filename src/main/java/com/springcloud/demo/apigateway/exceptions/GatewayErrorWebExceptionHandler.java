@@ -0,0 +1,102 @@
+package com.springcloud.demo.apigateway.exceptions;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springcloud.demo.apigateway.exceptions.dto.ErrorResponseDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.web.reactive.error.ErrorWebExceptionHandler;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes {@link ErrorResponseDTO} bodies for errors raised anywhere in the gateway, filters
+ * included. Bodies are encoded once per status and message and then served from a cache, so the
+ * hot 401 path does no JSON serialization.
+ */
+@Component
+@Order(-2)
+@RequiredArgsConstructor
+public class GatewayErrorWebExceptionHandler implements ErrorWebExceptionHandler {
+
+    // Messages can embed request data (e.g. WebClient errors), only this many distinct bodies are kept
+    private static final int MAX_CACHED_BODIES = 512;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<ErrorKey, byte[]> encodedBodies = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.error(ex);
+        }
+
+        ErrorKey error = toError(ex);
+        if (error == null) {
+            // Let the default handler deal with anything unexpected
+            return Mono.error(ex);
+        }
+
+        return write(response, error.status(), error.message());
+    }
+
+    public Mono<Void> write(ServerHttpResponse response, int status, String message) {
+        byte[] body = encode(new ErrorKey(status, message));
+
+        response.setStatusCode(HttpStatusCode.valueOf(status));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    private ErrorKey toError(Throwable ex) {
+        if (ex instanceof SimpleException e) {
+            return new ErrorKey(e.getStatus(), e.getMessage());
+        }
+        // Includes the gateway NotFoundException raised when no service instance is available
+        if (ex instanceof ResponseStatusException e) {
+            return new ErrorKey(e.getStatusCode().value(), e.getMessage());
+        }
+        if (ex instanceof WebClientRequestException || ex instanceof WebClientResponseException) {
+            return new ErrorKey(HttpStatus.INTERNAL_SERVER_ERROR.value(), ex.getMessage());
+        }
+        return null;
+    }
+
+    private byte[] encode(ErrorKey error) {
+        byte[] body = encodedBodies.get(error);
+        if (body != null) {
+            return body;
+        }
+
+        try {
+            body = objectMapper.writeValueAsBytes(ErrorResponseDTO.builder()
+                    .message(error.message())
+                    .status(error.status())
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (encodedBodies.size() < MAX_CACHED_BODIES) {
+            encodedBodies.putIfAbsent(error, body);
+        }
+        return body;
+    }
+
+    private record ErrorKey(int status, String message) {
+    }
+}
@@ -7,8 +7,9 @@ public class SimpleException extends  RuntimeException{
 
     private final int status;
 
+    // Client errors are expected (e.g. bots sending junk tokens), so they skip the stack trace capture
     public SimpleException(int status, String message) {
-        super(message);
+        super(message, null, false, status >= 500);
         this.status = status;
     }
 
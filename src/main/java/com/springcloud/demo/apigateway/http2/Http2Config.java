@@ -0,0 +1,24 @@
+package com.springcloud.demo.apigateway.http2;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring Boot serves h2 through ALPN when server.ssl is enabled and h2c otherwise, HTTP/1.1 stays
+ * available on both. The backends are reached over h2c per service, see gateway.upstream-pool.
+ */
+@Configuration
+@EnableConfigurationProperties(Http2Properties.class)
+@ConditionalOnProperty(name = "server.http2.enabled", havingValue = "true")
+public class Http2Config {
+
+    @Bean
+    public NettyServerCustomizer http2ServerCustomizer(Http2Properties properties) {
+        // The SO_REUSEPORT acceptors come from the same server factory, with the same protocols and SSL
+        return server -> server.http2Settings(settings -> settings
+                .maxConcurrentStreams(properties.getMaxConcurrentStreams()));
+    }
+}
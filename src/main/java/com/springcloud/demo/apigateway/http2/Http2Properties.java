@@ -0,0 +1,12 @@
+package com.springcloud.demo.apigateway.http2;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.http2")
+public class Http2Properties {
+
+    // Streams a client may open at once on one connection to the gateway
+    private long maxConcurrentStreams = 256;
+}
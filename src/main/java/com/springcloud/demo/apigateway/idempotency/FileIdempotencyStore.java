@@ -0,0 +1,200 @@
+package com.springcloud.demo.apigateway.idempotency;
+
+import com.springcloud.demo.apigateway.cache.SizedLruCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps one file per key in a local directory, so stored responses survive a restart of the
+ * gateway. The index of the files stays in memory and is rebuilt from the directory on startup.
+ */
+@Slf4j
+public class FileIdempotencyStore implements IdempotencyStore {
+
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".idem";
+
+    private final Path directory;
+    private final SizedLruCache<String, FileEntry> index;
+
+    public FileIdempotencyStore(IdempotencyProperties properties, MeterRegistry meterRegistry) throws IOException {
+        this.directory = properties.getFileDirectory();
+        this.index = new SizedLruCache<>(properties.getMaxSize().toBytes(), FileEntry::length);
+
+        Files.createDirectories(directory);
+        load();
+
+        Gauge.builder("gateway.idempotency.store.size", index, SizedLruCache::bytes).baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("gateway.idempotency.store.entries", index, SizedLruCache::size).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<StoredResponse> get(String key) {
+        FileEntry entry = index.get(key);
+        if (entry == null) {
+            return Mono.empty();
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt()) {
+            FileEntry expired = index.remove(key);
+            Schedulers.boundedElastic().schedule(() -> delete(expired));
+            return Mono.empty();
+        }
+
+        // File reads never run on the event loop
+        return Mono.fromCallable(() -> read(entry.file()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(IOException.class, e -> {
+                    log.warn("Could not read idempotency file {}", entry.file(), e);
+                    index.remove(key);
+                    return Mono.empty();
+                });
+    }
+
+    @Override
+    public Mono<Void> put(String key, StoredResponse response) {
+        return Mono.<Void>fromRunnable(() -> {
+                    Path file = directory.resolve(fileName(key));
+                    try {
+                        long length = write(file, key, response);
+                        index.put(key, new FileEntry(file, length, response.expiresAt()))
+                                .stream()
+                                .filter(evicted -> !evicted.file().equals(file))
+                                .forEach(this::delete);
+                    } catch (IOException e) {
+                        log.warn("Could not write idempotency file {}", file, e);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Expired and unreadable files are dropped, the rest is indexed oldest first
+    private void load() throws IOException {
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try (DataInputStream in = open(file)) {
+                    readVersion(in);
+                    String key = in.readUTF();
+                    long expiresAt = in.readLong();
+                    if (now < expiresAt) {
+                        index.put(key, new FileEntry(file, Files.size(file), expiresAt));
+                        continue;
+                    }
+                } catch (IOException e) {
+                    log.warn("Dropping unreadable idempotency file {}", file, e);
+                }
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static long write(Path file, String key, StoredResponse response) throws IOException {
+        // Renamed into place once complete, so a crash never leaves a truncated entry behind
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeLong(response.expiresAt());
+            out.writeUTF(response.fingerprint() != null ? response.fingerprint() : "");
+            out.writeInt(response.status());
+            out.writeInt(response.headers().size());
+            for (Map.Entry<String, List<String>> header : response.headers().entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeInt(header.getValue().size());
+                for (String value : header.getValue()) {
+                    out.writeUTF(value);
+                }
+            }
+            out.writeInt(response.isReplayable() ? response.body().length : -1);
+            if (response.isReplayable()) {
+                out.write(response.body());
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(file);
+    }
+
+    private static StoredResponse read(Path file) throws IOException {
+        try (DataInputStream in = open(file)) {
+            readVersion(in);
+            in.readUTF();
+            long expiresAt = in.readLong();
+            String fingerprint = in.readUTF();
+            int status = in.readInt();
+
+            HttpHeaders headers = new HttpHeaders();
+            int headerCount = in.readInt();
+            for (int i = 0; i < headerCount; i++) {
+                String name = in.readUTF();
+                int valueCount = in.readInt();
+                for (int j = 0; j < valueCount; j++) {
+                    headers.add(name, in.readUTF());
+                }
+            }
+
+            int bodyLength = in.readInt();
+            byte[] body = null;
+            if (bodyLength >= 0) {
+                body = new byte[bodyLength];
+                in.readFully(body);
+            }
+            return new StoredResponse(status, HttpHeaders.readOnlyHttpHeaders(headers), body, expiresAt,
+                    fingerprint.isEmpty() ? null : fingerprint);
+        }
+    }
+
+    private static void readVersion(DataInputStream in) throws IOException {
+        if (in.readInt() != VERSION) {
+            throw new IOException("Unknown version");
+        }
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+    }
+
+    // Keys come from clients, hashing keeps them out of the file system
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void delete(FileEntry entry) {
+        if (entry == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(entry.file());
+        } catch (IOException e) {
+            log.warn("Could not delete idempotency file {}", entry.file(), e);
+        }
+    }
+
+    private record FileEntry(Path file, long length, long expiresAt) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.springcloud.demo.apigateway.idempotency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+@Configuration
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.idempotency.store", havingValue = "memory", matchIfMissing = true)
+    public IdempotencyStore inMemoryIdempotencyStore(IdempotencyProperties properties, MeterRegistry meterRegistry) {
+        return new InMemoryIdempotencyStore(properties, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.idempotency.store", havingValue = "file")
+    public IdempotencyStore fileIdempotencyStore(IdempotencyProperties properties, MeterRegistry meterRegistry)
+            throws IOException {
+        return new FileIdempotencyStore(properties, meterRegistry);
+    }
+
+    @Bean
+    public IdempotentRequests idempotentRequests(IdempotencyStore store, MeterRegistry meterRegistry) {
+        return new IdempotentRequests(store, meterRegistry);
+    }
+}
@@ -0,0 +1,163 @@
+package com.springcloud.demo.apigateway.idempotency;
+
+import com.springcloud.demo.apigateway.cache.BodyCaptureResponse;
+import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import com.springcloud.demo.apigateway.retry.BudgetedRetryFilter;
+import lombok.Getter;
+import lombok.Setter;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Processes a POST carrying an Idempotency-Key once: the response is stored and replayed to the
+ * retries of the same user, concurrent duplicates wait for the first one. This filter only
+ * decorates the response, the keys are matched by {@link IdempotencyLookupFilter} once
+ * JwtAuthenticationFilter has identified the user.
+ */
+@Component
+public class IdempotencyFilter extends AbstractGatewayFilterFactory<IdempotencyFilter.Config> {
+
+    static final String RESPONSE_ATTRIBUTE = IdempotencyFilter.class.getName() + ".response";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final SimpleException INVALID_KEY = new SimpleException(
+            HttpStatus.BAD_REQUEST.value(), "Idempotency-Key must have between 1 and " + MAX_KEY_LENGTH + " characters");
+
+    // Never replayed to other requests
+    private static final List<String> PRIVATE_HEADERS = List.of(
+            HttpHeaders.SET_COOKIE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION);
+
+    private final IdempotentRequests idempotentRequests;
+    private final IdempotencyProperties properties;
+
+    public IdempotencyFilter(IdempotentRequests idempotentRequests, IdempotencyProperties properties) {
+        super(IdempotencyFilter.Config.class);
+        this.idempotentRequests = idempotentRequests;
+        this.properties = properties;
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+        // Retries with the same key past this are processed again
+        private Duration ttl = Duration.ofHours(24);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Before NettyWriteResponseFilter, which would otherwise write to the undecorated response
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (exchange.getRequest().getMethod() != HttpMethod.POST) {
+                return chain.filter(exchange);
+            }
+
+            String key = exchange.getRequest().getHeaders().getFirst(BudgetedRetryFilter.IDEMPOTENCY_KEY_HEADER);
+            if (key == null) {
+                return chain.filter(exchange);
+            }
+            if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+                return Mono.error(INVALID_KEY);
+            }
+
+            RequestFingerprint fingerprint = new RequestFingerprint(exchange.getRequest());
+            IdempotentResponse response = new IdempotentResponse(exchange.getResponse(), key, fingerprint, config);
+            exchange.getAttributes().put(RESPONSE_ATTRIBUTE, response);
+            // Outside BudgetedRetryFilter, a failed attempt that is retried does not give up the key and
+            // the body is hashed once. The body is written within the chain, so a lead still unsettled
+            // here had nothing to store.
+            return chain.filter(exchange.mutate()
+                            .request(fingerprint.hashing(exchange.getRequest()))
+                            .response(response)
+                            .build())
+                    .doFinally(signal -> response.abandon());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    class IdempotentResponse extends ServerHttpResponseDecorator {
+
+        @Getter
+        private final String idempotencyKey;
+        @Getter
+        private final RequestFingerprint fingerprint;
+        private final Config config;
+
+        private IdempotentRequests.InFlight leading;
+
+        IdempotentResponse(ServerHttpResponse delegate, String idempotencyKey, RequestFingerprint fingerprint,
+                           Config config) {
+            super(delegate);
+            this.idempotencyKey = idempotencyKey;
+            this.fingerprint = fingerprint;
+            this.config = config;
+        }
+
+        // Called for the first request of a key, its response is then stored and handed to the others
+        void lead(IdempotentRequests.InFlight flight) {
+            this.leading = flight;
+        }
+
+        boolean isLeading() {
+            return leading != null;
+        }
+
+        void abandon() {
+            if (leading != null) {
+                idempotentRequests.abandoned(leading);
+            }
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            IdempotentRequests.InFlight flight = leading;
+            if (flight == null) {
+                return super.writeWith(body);
+            }
+
+            // Server errors are not stored, the client is expected to try again
+            HttpStatusCode status = getStatusCode();
+            if (status == null || status.is5xxServerError()) {
+                idempotentRequests.abandoned(flight);
+                return super.writeWith(body);
+            }
+
+            ServerHttpResponse delegate = getDelegate();
+            HttpHeaders headers = new HttpHeaders();
+            headers.addAll(delegate.getHeaders());
+            PRIVATE_HEADERS.forEach(headers::remove);
+            HttpHeaders stored = HttpHeaders.readOnlyHttpHeaders(headers);
+            long expiresAt = System.currentTimeMillis() + config.getTtl().toMillis();
+            String requestFingerprint = fingerprint.value();
+
+            // A body over the limit still settles the key, without anything to replay
+            return new BodyCaptureResponse(delegate, (int) properties.getMaxBodySize().toBytes(), captured ->
+                    idempotentRequests.completed(flight,
+                            new StoredResponse(status.value(), stored, captured, expiresAt, requestFingerprint)))
+                    .writeWith(Flux.from(body).doFinally(signal -> {
+                        if (signal == SignalType.ON_COMPLETE) {
+                            idempotentRequests.completed(flight,
+                                    new StoredResponse(status.value(), stored, null, expiresAt, requestFingerprint));
+                        } else {
+                            idempotentRequests.abandoned(flight);
+                        }
+                    }));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.springcloud.demo.apigateway.idempotency;
+
+import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import com.springcloud.demo.apigateway.security.filters.JwtAuthenticationFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Matches requests of routes with {@link IdempotencyFilter} against the stored and in flight ones.
+ * Keys are scoped to the route and the user, so clients cannot read each other's responses. A key
+ * reused for a different method, path or body is answered with a 422 instead of a replay.
+ */
+@Component
+public class IdempotencyLookupFilter implements GlobalFilter, Ordered {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final SimpleException ALREADY_PROCESSED = new SimpleException(
+            HttpStatus.CONFLICT.value(), "A request with this Idempotency-Key was already processed");
+
+    private static final SimpleException DIFFERENT_REQUEST = new SimpleException(
+            HttpStatus.UNPROCESSABLE_ENTITY.value(), "This Idempotency-Key was used for a different request");
+
+    private static final SimpleException STILL_PROCESSING = new SimpleException(
+            HttpStatus.CONFLICT.value(), "A request with this Idempotency-Key is still being processed");
+
+    private final IdempotentRequests idempotentRequests;
+    private final IdempotencyProperties properties;
+
+    public IdempotencyLookupFilter(IdempotentRequests idempotentRequests, IdempotencyProperties properties) {
+        this.idempotentRequests = idempotentRequests;
+        this.properties = properties;
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER - 3;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        IdempotencyFilter.IdempotentResponse response = exchange.getAttribute(IdempotencyFilter.RESPONSE_ATTRIBUTE);
+        // Attempts of BudgetedRetryFilter come through again once the request leads
+        if (response == null || response.isLeading()) {
+            return chain.filter(exchange);
+        }
+
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "";
+        String userId = exchange.getAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE);
+        String key = routeId + '#' + (userId != null ? userId : "") + '#' + response.getIdempotencyKey();
+
+        return lookup(key, routeId, response, exchange, chain);
+    }
+
+    private Mono<Void> lookup(String key, String routeId, IdempotencyFilter.IdempotentResponse response,
+                              ServerWebExchange exchange, GatewayFilterChain chain) {
+        IdempotentRequests.InFlight flight = idempotentRequests.join(key);
+        if (flight.isLeader()) {
+            return idempotentRequests.stored(flight)
+                    .map(stored -> {
+                        idempotentRequests.replayed(flight, stored);
+                        return replay(routeId, "replayed", response, exchange, stored);
+                    })
+                    .defaultIfEmpty(Mono.defer(() -> {
+                        idempotentRequests.record(routeId, "leader");
+                        response.lead(flight);
+                        // The body is written after the chain completes, IdempotentResponse settles the key
+                        return chain.filter(exchange);
+                    }))
+                    .flatMap(write -> write);
+        }
+
+        // An abandoned leader leaves the key free, the waiting requests race for it again
+        return flight.response()
+                .timeout(properties.getWaitTimeout(), Mono.defer(() -> {
+                    idempotentRequests.record(routeId, "wait_timeout");
+                    return Mono.error(STILL_PROCESSING);
+                }))
+                .map(stored -> replay(routeId, "coalesced", response, exchange, stored))
+                .defaultIfEmpty(Mono.defer(() -> lookup(key, routeId, response, exchange, chain)))
+                .flatMap(write -> write);
+    }
+
+    // The body of a duplicate is only read to compare it, it never goes upstream
+    private Mono<Void> replay(String routeId, String result, IdempotencyFilter.IdempotentResponse response,
+                              ServerWebExchange exchange, StoredResponse stored) {
+        return response.getFingerprint().read(exchange.getRequest())
+                .map(stored::matches)
+                .defaultIfEmpty(true)
+                .flatMap(matches -> {
+                    if (!matches) {
+                        idempotentRequests.record(routeId, "mismatch");
+                        return Mono.error(DIFFERENT_REQUEST);
+                    }
+                    idempotentRequests.record(routeId, result);
+                    return write(response.getDelegate(), stored);
+                });
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, StoredResponse stored) {
+        if (!stored.isReplayable()) {
+            return Mono.error(ALREADY_PROCESSED);
+        }
+        response.setStatusCode(HttpStatusCode.valueOf(stored.status()));
+        response.getHeaders().putAll(stored.headers());
+        response.getHeaders().set(REPLAYED_HEADER, "true");
+        response.getHeaders().setContentLength(stored.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(stored.body())));
+    }
+}
@@ -0,0 +1,27 @@
+package com.springcloud.demo.apigateway.idempotency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.idempotency")
+public class IdempotencyProperties {
+
+    // memory | file
+    private String store = "memory";
+
+    // Shared by every route using IdempotencyFilter, the least recently used keys go first
+    private DataSize maxSize = DataSize.ofMegabytes(16);
+
+    // Bigger responses only mark their key as used, retries of it get a 409
+    private DataSize maxBodySize = DataSize.ofKilobytes(64);
+
+    // Duplicates waiting for the first request of their key give up with a 409 past this
+    private Duration waitTimeout = Duration.ofSeconds(10);
+
+    private Path fileDirectory = Path.of(System.getProperty("java.io.tmpdir"), "gateway-idempotency");
+}
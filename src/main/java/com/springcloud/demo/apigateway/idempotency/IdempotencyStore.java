@@ -0,0 +1,14 @@
+package com.springcloud.demo.apigateway.idempotency;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Storage of the responses by idempotency key, selected with {@code gateway.idempotency.store}
+ * ({@code memory} or {@code file}). Expired responses are never returned.
+ */
+public interface IdempotencyStore {
+
+    Mono<StoredResponse> get(String key);
+
+    Mono<Void> put(String key, StoredResponse response);
+}
@@ -0,0 +1,114 @@
+package com.springcloud.demo.apigateway.idempotency;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Requests in flight by idempotency key, in front of the {@link IdempotencyStore}. The first request
+ * of a key leads and goes upstream, duplicates arriving meanwhile wait for its response.
+ */
+@Slf4j
+public class IdempotentRequests {
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final IdempotencyStore store;
+    private final MeterRegistry meterRegistry;
+
+    public IdempotentRequests(IdempotencyStore store, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("gateway.idempotency.in_flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the request already in flight for the key, or registers and returns a new one whose
+     * {@link InFlight#isLeader()} is true for the caller.
+     */
+    public InFlight join(String key) {
+        InFlight[] created = {null};
+        InFlight flight = inFlight.computeIfAbsent(key, k -> created[0] = new InFlight(k));
+        return flight == created[0] ? flight.asLeader() : flight;
+    }
+
+    // Looked up by the leader only, a key stays in flight until its response is stored
+    public Mono<StoredResponse> stored(InFlight flight) {
+        return store.get(flight.key);
+    }
+
+    public void completed(InFlight flight, StoredResponse response) {
+        if (!flight.settled.compareAndSet(false, true)) {
+            return;
+        }
+        store.put(flight.key, response)
+                .doOnError(e -> log.warn("Could not store the response of idempotency key {}", flight.key, e))
+                .onErrorComplete()
+                .doFinally(signal -> {
+                    remove(flight);
+                    flight.sink.tryEmitValue(response);
+                })
+                .subscribe();
+    }
+
+    // Found in the store by the leader, the waiting requests get it too
+    public void replayed(InFlight flight, StoredResponse response) {
+        if (flight.settled.compareAndSet(false, true)) {
+            remove(flight);
+            flight.sink.tryEmitValue(response);
+        }
+    }
+
+    // The leader failed, was cancelled or got a 5xx, the waiting requests try again
+    public void abandoned(InFlight flight) {
+        if (flight.settled.compareAndSet(false, true)) {
+            remove(flight);
+            flight.sink.tryEmitEmpty();
+        }
+    }
+
+    // The leader holds a copy of the registered InFlight, both share the sink
+    private void remove(InFlight flight) {
+        inFlight.computeIfPresent(flight.key, (key, current) -> current.sink == flight.sink ? null : current);
+    }
+
+    public void record(String routeId, String result) {
+        meterRegistry.counter("gateway.idempotency.requests", "route", routeId, "result", result).increment();
+    }
+
+    public static final class InFlight {
+
+        private final String key;
+        private final Sinks.One<StoredResponse> sink;
+        private final AtomicBoolean settled;
+        private final boolean leader;
+
+        private InFlight(String key) {
+            this(key, Sinks.one(), new AtomicBoolean(), false);
+        }
+
+        private InFlight(String key, Sinks.One<StoredResponse> sink, AtomicBoolean settled, boolean leader) {
+            this.key = key;
+            this.sink = sink;
+            this.settled = settled;
+            this.leader = leader;
+        }
+
+        private InFlight asLeader() {
+            return new InFlight(key, sink, settled, true);
+        }
+
+        public boolean isLeader() {
+            return leader;
+        }
+
+        public Mono<StoredResponse> response() {
+            return sink.asMono();
+        }
+    }
+}
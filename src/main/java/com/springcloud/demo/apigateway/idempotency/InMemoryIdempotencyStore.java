@@ -0,0 +1,42 @@
+package com.springcloud.demo.apigateway.idempotency;
+
+import com.springcloud.demo.apigateway.cache.SizedLruCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the responses in heap, the least recently used go first once the total size is reached.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    // Accounted for every entry, so bodiless responses still count against the size
+    private static final long ENTRY_OVERHEAD = 256;
+
+    private final SizedLruCache<String, StoredResponse> entries;
+
+    public InMemoryIdempotencyStore(IdempotencyProperties properties, MeterRegistry meterRegistry) {
+        this.entries = new SizedLruCache<>(properties.getMaxSize().toBytes(),
+                response -> response.size() + ENTRY_OVERHEAD);
+
+        Gauge.builder("gateway.idempotency.store.size", entries, SizedLruCache::bytes).baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("gateway.idempotency.store.entries", entries, SizedLruCache::size).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<StoredResponse> get(String key) {
+        StoredResponse response = entries.get(key);
+        if (response != null && !response.isFresh(System.currentTimeMillis())) {
+            entries.remove(key);
+            return Mono.empty();
+        }
+        return Mono.justOrEmpty(response);
+    }
+
+    @Override
+    public Mono<Void> put(String key, StoredResponse response) {
+        entries.put(key, response);
+        return Mono.empty();
+    }
+}
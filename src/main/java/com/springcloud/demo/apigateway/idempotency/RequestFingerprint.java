@@ -0,0 +1,70 @@
+package com.springcloud.demo.apigateway.idempotency;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * SHA-256 of the method, path and body of a request, hashed while the body streams through so it
+ * is never held in full. Only the first read of the body is hashed, the value is null until that
+ * read has completed.
+ */
+final class RequestFingerprint {
+
+    private final MessageDigest digest;
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private volatile String value;
+
+    RequestFingerprint(ServerHttpRequest request) {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        URI uri = request.getURI();
+        String target = uri.getRawQuery() != null ? uri.getRawPath() + '?' + uri.getRawQuery() : uri.getRawPath();
+        digest.update((request.getMethod().name() + ' ' + target + '\n').getBytes(StandardCharsets.UTF_8));
+    }
+
+    String value() {
+        return value;
+    }
+
+    ServerHttpRequest hashing(ServerHttpRequest request) {
+        return new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                if (!claimed.compareAndSet(false, true)) {
+                    return super.getBody();
+                }
+                return super.getBody()
+                        .doOnNext(buffer -> {
+                            try (DataBuffer.ByteBufferIterator buffers = buffer.readableByteBuffers()) {
+                                buffers.forEachRemaining(digest::update);
+                            }
+                        })
+                        .doOnComplete(() -> value = HexFormat.of().formatHex(digest.digest()));
+            }
+        };
+    }
+
+    // Reads and discards what is left of the body of a request that is not sent upstream
+    Mono<String> read(ServerHttpRequest request) {
+        if (value != null) {
+            return Mono.just(value);
+        }
+        return request.getBody()
+                .doOnNext(DataBufferUtils::release)
+                .then(Mono.fromSupplier(this::value));
+    }
+}
@@ -0,0 +1,28 @@
+package com.springcloud.demo.apigateway.idempotency;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * The response first sent for an idempotency key. Responses too big to keep have no body, they
+ * still mark the key as used so the request is not processed twice. The fingerprint of the request
+ * that got it is null when its body was not read in full.
+ */
+public record StoredResponse(int status, HttpHeaders headers, byte[] body, long expiresAt, String fingerprint) {
+
+    // Unknown fingerprints on either side are not held against the request
+    public boolean matches(String requestFingerprint) {
+        return fingerprint == null || requestFingerprint == null || fingerprint.equals(requestFingerprint);
+    }
+
+    public boolean isReplayable() {
+        return body != null;
+    }
+
+    public boolean isFresh(long now) {
+        return now < expiresAt;
+    }
+
+    public long size() {
+        return body != null ? body.length : 0;
+    }
+}
@@ -1,8 +1,9 @@
 package com.springcloud.demo.apigateway.monitoring;
 
-import com.amazonaws.xray.AWSXRay;
-import com.amazonaws.xray.entities.Segment;
 import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import com.springcloud.demo.apigateway.monitoring.tracing.GatewaySpan;
+import com.springcloud.demo.apigateway.monitoring.tracing.TracingBackend;
+import lombok.RequiredArgsConstructor;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
@@ -13,62 +14,56 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.util.HashMap;
-import java.util.Map;
-
 @Component
 @Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
 public class TracingFilterConfig implements GlobalFilter {
 
+    private final TracingBackend tracingBackend;
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         ServerHttpRequest request = exchange.getRequest();
 
-        Segment segment = AWSXRay.beginSegment("Gateway");
-
-        String xRayHeader = TracingUtils.getXRayHeader();
+        GatewaySpan span = tracingBackend.startSpan("Gateway", request.getHeaders());
+        exchange.getAttributes().put(GatewaySpan.ATTRIBUTE, span);
 
-        // Add header to request
+        // Add propagation headers to request
         ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
-                .header("X-Amzn-Trace-Id", xRayHeader)
+                .headers(headers -> span.injectHeaders(headers::set))
                 .build();
 
-        // Add metadata to segment of trace
-        Map<String, Object> requestInfo = new HashMap<>();
-        requestInfo.put("method", request.getMethod().name());
-        requestInfo.put("url", request.getURI().toString());
-        segment.putHttp("request", requestInfo);
-        Map<String, Object> responseInfo = new HashMap<>();
+        // Add metadata to span of trace
+        span.setHttpRequest(request.getMethod().name(), request.getURI().toString());
 
         return chain.filter(exchange.mutate().request(mutatedRequest).build())
                 .doOnSuccess(aVoid -> {
                     ServerHttpResponse response = exchange.getResponse();
 
-                    responseInfo.put("status", response.getStatusCode() != null ? response.getStatusCode().value() : 500);
+                    int status = response.getStatusCode() != null ? response.getStatusCode().value() : 500;
+                    span.setHttpStatus(status);
 
 //                    Handle errors of routes services
-                    if ((Integer) responseInfo.get("status") >= 400 && (Integer) responseInfo.get("status") < 500) {
-                        segment.setError(true);
+                    if (status >= 400 && status < 500) {
+                        span.setError(true);
                     }
-                    if ((Integer) responseInfo.get("status") >= 500) {
-                        segment.setFault(true);
+                    if (status >= 500) {
+                        span.setFault(true);
                     }
                 })
 //                Handle errors on this gateway or web client requests
                 .doOnError(throwable -> {
                     if (throwable instanceof SimpleException simpleException && simpleException.getStatus() < 500) {
-                        responseInfo.put("status", simpleException.getStatus());
-                        segment.setError(true);
-                        segment.setFault(false);
-                        segment.setMetadata(Map.of("exception", Map.of("message", simpleException.getMessage())));
+                        span.setHttpStatus(simpleException.getStatus());
+                        span.setError(true);
+                        span.setFault(false);
+                        span.setExceptionMessage(simpleException.getMessage());
                     } else {
-                        segment.setFault(true);
-                        segment.addException(throwable);
+                        span.setFault(true);
+                        span.addException(throwable);
                     }
                 })
-                .doOnTerminate(() -> {
-                    segment.putHttp("response", responseInfo);
-                    AWSXRay.endSegment();
-                });
+                .doFinally(signal -> span.end())
+                .contextWrite(context -> context.put(GatewaySpan.class, span));
     }
 }
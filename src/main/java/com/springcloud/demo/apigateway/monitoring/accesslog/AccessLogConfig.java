@@ -0,0 +1,47 @@
+package com.springcloud.demo.apigateway.monitoring.accesslog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AccessLogProperties.class)
+@ConditionalOnProperty(name = "gateway.access-log.enabled", havingValue = "true")
+public class AccessLogConfig {
+
+    @Bean
+    public AccessLogRingBuffer accessLogRingBuffer(AccessLogProperties properties, MeterRegistry meterRegistry) {
+        AccessLogRingBuffer ringBuffer = new AccessLogRingBuffer(properties.getBufferSize());
+
+        FunctionCounter.builder("gateway.access_log.dropped", ringBuffer, AccessLogRingBuffer::getDropped)
+                .description("Access log records dropped because the ring buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("gateway.access_log.pending", ringBuffer, AccessLogRingBuffer::getPending)
+                .register(meterRegistry);
+        return ringBuffer;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public AccessLogWriter accessLogWriter(AccessLogRingBuffer ringBuffer, AccessLogProperties properties,
+                                           MeterRegistry meterRegistry) {
+        AccessLogWriter writer = new AccessLogWriter(ringBuffer, properties);
+
+        FunctionCounter.builder("gateway.access_log.written", writer, AccessLogWriter::getWritten)
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.access_log.failed", writer, AccessLogWriter::getFailed)
+                .description("Access log records lost because their batch could not be written")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.access_log.write_errors", writer, AccessLogWriter::getWriteErrors)
+                .register(meterRegistry);
+        return writer;
+    }
+
+    @Bean
+    public AccessLogFilter accessLogFilter(AccessLogRingBuffer ringBuffer, AccessLogProperties properties) {
+        return new AccessLogFilter(ringBuffer, properties);
+    }
+}
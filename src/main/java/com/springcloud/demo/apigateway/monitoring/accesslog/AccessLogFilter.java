@@ -0,0 +1,156 @@
+package com.springcloud.demo.apigateway.monitoring.accesslog;
+
+import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import com.springcloud.demo.apigateway.monitoring.tracing.GatewaySpan;
+import com.springcloud.demo.apigateway.security.filters.JwtAuthenticationFilter;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+public class AccessLogFilter implements GlobalFilter, Ordered {
+
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final int FILE_CHUNK_SIZE = 64 * 1024;
+
+    private final AccessLogRingBuffer ringBuffer;
+    private final AccessLogProperties properties;
+
+    public AccessLogFilter(AccessLogRingBuffer ringBuffer, AccessLogProperties properties) {
+        this.ringBuffer = ringBuffer;
+        this.properties = properties;
+    }
+
+    @Override
+    public int getOrder() {
+        // Inside TracingFilterConfig so the span of the request is available
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : null;
+
+        double sampleRate = properties.getRouteSampleRates().getOrDefault(routeId, properties.getSampleRate());
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return chain.filter(exchange);
+        }
+
+        long start = System.nanoTime();
+        CountingResponse response = new CountingResponse(exchange.getResponse());
+        int[] errorStatus = {0};
+
+        return chain.filter(exchange.mutate().response(response).build())
+                .doOnError(throwable -> errorStatus[0] = statusOf(throwable))
+                .doFinally(signal -> {
+                    int status = errorStatus[0];
+                    if (status == 0) {
+                        status = response.getStatusCode() != null ? response.getStatusCode().value() : 200;
+                    }
+                    GatewaySpan span = exchange.getAttribute(GatewaySpan.ATTRIBUTE);
+
+                    ringBuffer.publish(
+                            System.currentTimeMillis(),
+                            routeId,
+                            exchange.getRequest().getMethod().name(),
+                            pathTemplate(exchange),
+                            status,
+                            response.bytes > 0 ? response.bytes : response.getHeaders().getContentLength(),
+                            System.nanoTime() - start,
+                            exchange.getAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE),
+                            span != null ? span.getTraceId() : null
+                    );
+                });
+    }
+
+    private static int statusOf(Throwable throwable) {
+        if (throwable instanceof SimpleException simpleException) {
+            return simpleException.getStatus();
+        }
+        if (throwable instanceof ResponseStatusException responseStatusException) {
+            return responseStatusException.getStatusCode().value();
+        }
+        return 500;
+    }
+
+    // Replaces path variables and ids by placeholders so paths can be grouped, e.g. /api/rooms/{id}
+    static String pathTemplate(ServerWebExchange exchange) {
+        String path = exchange.getRequest().getPath().value();
+        Map<String, String> variables = ServerWebExchangeUtils.getUriTemplateVariables(exchange);
+
+        StringBuilder template = new StringBuilder(path.length());
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            template.append('/');
+
+            String variable = variableName(variables, segment);
+            if (variable != null) {
+                template.append('{').append(variable).append('}');
+            } else if (ID_SEGMENT.matcher(segment).matches()) {
+                template.append("{id}");
+            } else {
+                template.append(segment);
+            }
+        }
+        return template.isEmpty() ? "/" : template.toString();
+    }
+
+    private static String variableName(Map<String, String> variables, String segment) {
+        for (Map.Entry<String, String> variable : variables.entrySet()) {
+            if (segment.equals(variable.getValue())) {
+                return variable.getKey();
+            }
+        }
+        return null;
+    }
+
+    // Zero-copy writes are passed through so files served by the image cache still use sendfile
+    private static class CountingResponse extends ServerHttpResponseDecorator implements ZeroCopyHttpOutputMessage {
+        private long bytes;
+
+        CountingResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeWith(Flux.from(body).doOnNext(buffer -> bytes += buffer.readableByteCount()));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(Flux.from(body).map(inner ->
+                    Flux.from(inner).doOnNext(buffer -> bytes += buffer.readableByteCount())));
+        }
+
+        @Override
+        public Mono<Void> writeWith(Path file, long position, long count) {
+            if (getDelegate() instanceof ZeroCopyHttpOutputMessage zeroCopy) {
+                return zeroCopy.writeWith(file, position, count).doOnSuccess(done -> bytes += count);
+            }
+            Flux<DataBuffer> chunks = DataBufferUtils.read(file, bufferFactory(), FILE_CHUNK_SIZE, StandardOpenOption.READ);
+            return writeWith(DataBufferUtils.takeUntilByteCount(DataBufferUtils.skipUntilByteCount(chunks, position), count));
+        }
+    }
+}
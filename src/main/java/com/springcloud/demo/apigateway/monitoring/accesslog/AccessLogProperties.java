@@ -0,0 +1,29 @@
+package com.springcloud.demo.apigateway.monitoring.accesslog;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.access-log")
+public class AccessLogProperties {
+
+    public enum Format { JSON, BINARY }
+
+    private boolean enabled = false;
+    private String file = "logs/access.log";
+    private Format format = Format.JSON;
+
+    // Slots preallocated in the ring buffer, rounded up to a power of two
+    private int bufferSize = 65536;
+    private int batchSize = 1024;
+
+    private DataSize maxFileSize = DataSize.ofMegabytes(100);
+    private int maxHistory = 5;
+
+    private double sampleRate = 1.0;
+    private Map<String, Double> routeSampleRates = new HashMap<>();
+}
@@ -0,0 +1,16 @@
+package com.springcloud.demo.apigateway.monitoring.accesslog;
+
+/**
+ * Mutable ring buffer slot, reused for every record written to it.
+ */
+class AccessLogRecord {
+    long timestamp;
+    String routeId;
+    String method;
+    String path;
+    int status;
+    long bytes;
+    long latencyNanos;
+    String userId;
+    String traceId;
+}
@@ -0,0 +1,100 @@
+package com.springcloud.demo.apigateway.monitoring.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi producer, single consumer ring of preallocated records. Producers never block: when the
+ * writer falls behind a full ring, records are dropped and counted.
+ */
+public class AccessLogRingBuffer {
+
+    private final AccessLogRecord[] records;
+    private final AtomicLongArray published;
+    private final int mask;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long consumed;
+
+    public AccessLogRingBuffer(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+        this.records = new AccessLogRecord[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < capacity; i++) {
+            records[i] = new AccessLogRecord();
+            published.set(i, -1);
+        }
+    }
+
+    public boolean publish(long timestamp, String routeId, String method, String path, int status,
+                           long bytes, long latencyNanos, String userId, String traceId) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= records.length) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) (sequence & mask);
+        AccessLogRecord record = records[index];
+        record.timestamp = timestamp;
+        record.routeId = routeId;
+        record.method = method;
+        record.path = path;
+        record.status = status;
+        record.bytes = bytes;
+        record.latencyNanos = latencyNanos;
+        record.userId = userId;
+        record.traceId = traceId;
+
+        published.lazySet(index, sequence);
+        return true;
+    }
+
+    /**
+     * Hands up to {@code maxRecords} published records to the consumer, only called by the writer
+     * thread.
+     */
+    int drain(RecordConsumer consumer, int maxRecords) {
+        long next = consumed;
+        int count = 0;
+
+        while (count < maxRecords) {
+            int index = (int) (next & mask);
+            if (published.get(index) != next) {
+                break;
+            }
+            consumer.accept(records[index]);
+            next++;
+            count++;
+        }
+
+        if (count > 0) {
+            consumed = next;
+        }
+        return count;
+    }
+
+    public int capacity() {
+        return records.length;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getPending() {
+        return claimed.get() - consumed;
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(AccessLogRecord record);
+    }
+}
@@ -0,0 +1,259 @@
+package com.springcloud.demo.apigateway.monitoring.accesslog;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background thread that drains the ring buffer in batches and appends them to a size rolled
+ * file, so no file I/O ever happens on Netty event loops. A failed write loses its batch, the
+ * file is reopened after a pause and writing goes on.
+ */
+@Slf4j
+public class AccessLogWriter implements Runnable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long REOPEN_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AccessLogRingBuffer ringBuffer;
+    private final AccessLogProperties properties;
+    private final Path file;
+
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream(256 * 1024);
+    private final DataOutputStream binary = new DataOutputStream(batch);
+    private final StringBuilder json = new StringBuilder(512);
+
+    private OutputStream output;
+    private long fileSize;
+    private volatile long written;
+    private volatile long failed;
+    private volatile long writeErrors;
+    private volatile boolean running;
+    private Thread thread;
+
+    public AccessLogWriter(AccessLogRingBuffer ringBuffer, AccessLogProperties properties) {
+        this.ringBuffer = ringBuffer;
+        this.properties = properties;
+        this.file = Path.of(properties.getFile());
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "access-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    // Records lost because the batch holding them could not be written
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getWriteErrors() {
+        return writeErrors;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                if (output == null) {
+                    open();
+                }
+                if (writeBatch() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (IOException e) {
+                writeFailed(e);
+            }
+        }
+
+        // Flush what producers published before shutdown
+        try {
+            if (output == null) {
+                open();
+            }
+            int drained;
+            do {
+                drained = writeBatch();
+            } while (drained > 0);
+        } catch (IOException e) {
+            writeErrors++;
+            log.error("Access log records published before shutdown were lost", e);
+        }
+        close();
+    }
+
+    private int writeBatch() throws IOException {
+        batch.reset();
+        int count = ringBuffer.drain(this::encode, properties.getBatchSize());
+        if (count == 0) {
+            return 0;
+        }
+
+        try {
+            if (fileSize + batch.size() > properties.getMaxFileSize().toBytes()) {
+                roll();
+            }
+            batch.writeTo(output);
+            output.flush();
+        } catch (IOException e) {
+            failed += count;
+            throw e;
+        }
+        fileSize += batch.size();
+        written += count;
+        return count;
+    }
+
+    // The ring keeps absorbing records meanwhile and counts what it cannot hold as dropped
+    private void writeFailed(IOException e) {
+        writeErrors++;
+        log.warn("Access log write to {} failed, reopening", file, e);
+        close();
+        if (running) {
+            LockSupport.parkNanos(REOPEN_PARK_NANOS);
+        }
+    }
+
+    private void close() {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.close();
+        } catch (IOException e) {
+            log.debug("Closing access log {} failed", file, e);
+        }
+        output = null;
+    }
+
+    private void encode(AccessLogRecord record) {
+        try {
+            if (properties.getFormat() == AccessLogProperties.Format.BINARY) {
+                encodeBinary(record);
+            } else {
+                encodeJson(record);
+            }
+        } catch (IOException e) {
+            // Writing to a ByteArrayOutputStream never fails
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void encodeJson(AccessLogRecord record) {
+        json.setLength(0);
+        json.append("{\"timestamp\":\"").append(Instant.ofEpochMilli(record.timestamp)).append('"');
+        appendJson("route", record.routeId);
+        appendJson("method", record.method);
+        appendJson("path", record.path);
+        json.append(",\"status\":").append(record.status);
+        json.append(",\"bytes\":").append(record.bytes);
+        json.append(",\"latencyMicros\":").append(record.latencyNanos / 1_000);
+        appendJson("userId", record.userId);
+        appendJson("traceId", record.traceId);
+        json.append("}\n");
+
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        batch.write(bytes, 0, bytes.length);
+    }
+
+    private void appendJson(String name, String value) {
+        json.append(",\"").append(name).append("\":");
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    // Fixed field order, strings as modified UTF-8 with an empty string for null
+    private void encodeBinary(AccessLogRecord record) throws IOException {
+        binary.writeLong(record.timestamp);
+        binary.writeUTF(nullToEmpty(record.routeId));
+        binary.writeUTF(nullToEmpty(record.method));
+        binary.writeUTF(nullToEmpty(record.path));
+        binary.writeShort(record.status);
+        binary.writeLong(record.bytes);
+        binary.writeLong(record.latencyNanos);
+        binary.writeUTF(nullToEmpty(record.userId));
+        binary.writeUTF(nullToEmpty(record.traceId));
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private void open() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        output = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileSize = Files.size(file);
+    }
+
+    private void roll() throws IOException {
+        close();
+
+        for (int i = properties.getMaxHistory() - 1; i >= 1; i--) {
+            Path source = rolledFile(i);
+            if (Files.exists(source)) {
+                Files.move(source, rolledFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (properties.getMaxHistory() > 0) {
+            Files.move(file, rolledFile(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+
+        open();
+    }
+
+    private Path rolledFile(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
@@ -0,0 +1,42 @@
+package com.springcloud.demo.apigateway.monitoring.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Disabled until a recording is started through the jfr actuator endpoint
+@Name("com.springcloud.demo.apigateway.Authorization")
+@Label("Authorization Decision")
+@Description("Role check done by JwtAuthenticationFilter")
+@Category({"Gateway"})
+@Enabled(false)
+@StackTrace(false)
+public class AuthorizationEvent extends Event {
+
+    @Label("Route Id")
+    public String routeId;
+
+    @Label("Allowed")
+    public boolean allowed;
+
+    @Label("Allowed Roles")
+    public String allowedRoles;
+
+    @Label("Reason")
+    public String reason;
+
+    public void complete(String routeId, boolean allowed, String allowedRoles, String reason) {
+        end();
+        if (shouldCommit()) {
+            this.routeId = routeId;
+            this.allowed = allowed;
+            this.allowedRoles = allowedRoles;
+            this.reason = reason;
+            commit();
+        }
+    }
+}
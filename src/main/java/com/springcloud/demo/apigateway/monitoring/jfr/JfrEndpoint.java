@@ -0,0 +1,127 @@
+package com.springcloud.demo.apigateway.monitoring.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Starts, dumps and stops an on demand flight recording with the gateway events enabled:
+ * {@code POST /actuator/jfr}, {@code GET /actuator/jfr}, {@code DELETE /actuator/jfr}. The
+ * endpoint has no authentication of its own and is not exposed unless listed in
+ * {@code management.endpoints.web.exposure.include}.
+ */
+@Component
+@Endpoint(id = "jfr")
+public class JfrEndpoint implements DisposableBean {
+
+    @Value("${gateway.jfr.thresholds.jwt-verification:0ms}")
+    private Duration jwtVerificationThreshold;
+
+    @Value("${gateway.jfr.thresholds.user-lookup:0ms}")
+    private Duration userLookupThreshold;
+
+    @Value("${gateway.jfr.thresholds.authorization:0ms}")
+    private Duration authorizationThreshold;
+
+    @Value("${gateway.jfr.thresholds.upstream-call:0ms}")
+    private Duration upstreamCallThreshold;
+
+    private Recording recording;
+
+    // The last dump is streamed from disk, so it is only deleted by the next dump or by stop
+    private Path dumpFile;
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable Duration duration, @Nullable Boolean profile)
+            throws IOException, ParseException {
+        close();
+
+        // The profile configuration adds JVM events such as CPU samples and allocations
+        recording = Boolean.TRUE.equals(profile)
+                ? new Recording(Configuration.getConfiguration("profile"))
+                : new Recording();
+        recording.setName("gateway");
+        recording.setToDisk(true);
+        if (duration != null) {
+            recording.setDuration(duration);
+        }
+
+        recording.enable(JwtVerificationEvent.class).withThreshold(jwtVerificationThreshold);
+        recording.enable(UserLookupEvent.class).withThreshold(userLookupThreshold);
+        recording.enable(AuthorizationEvent.class).withThreshold(authorizationThreshold);
+        recording.enable(UpstreamCallEvent.class).withThreshold(upstreamCallThreshold);
+        recording.start();
+
+        return describe();
+    }
+
+    @ReadOperation
+    public synchronized WebEndpointResponse<Resource> dump() throws IOException {
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+
+        deleteDump();
+        dumpFile = Files.createTempFile("gateway-", ".jfr");
+        recording.dump(dumpFile);
+        return new WebEndpointResponse<>(new FileSystemResource(dumpFile));
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() throws IOException {
+        Map<String, Object> description = describe();
+        close();
+        deleteDump();
+        return description;
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        close();
+        deleteDump();
+    }
+
+    private Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        if (recording != null) {
+            description.put("id", recording.getId());
+            description.put("name", recording.getName());
+            description.put("state", recording.getState().name());
+            description.put("startTime", recording.getStartTime());
+            description.put("duration", recording.getDuration());
+        }
+        return description;
+    }
+
+    private void deleteDump() throws IOException {
+        if (dumpFile != null) {
+            Files.deleteIfExists(dumpFile);
+            dumpFile = null;
+        }
+    }
+
+    private void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.springcloud.demo.apigateway.monitoring.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Disabled until a recording is started through the jfr actuator endpoint
+@Name("com.springcloud.demo.apigateway.JwtVerification")
+@Label("JWT Verification")
+@Description("Signature and claims check of the bearer token")
+@Category({"Gateway"})
+@Enabled(false)
+@StackTrace(false)
+public class JwtVerificationEvent extends Event {
+
+    @Label("Route Id")
+    public String routeId;
+
+    @Label("Valid")
+    public boolean valid;
+
+    public void complete(String routeId, boolean valid) {
+        end();
+        if (shouldCommit()) {
+            this.routeId = routeId;
+            this.valid = valid;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.springcloud.demo.apigateway.monitoring.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Disabled until a recording is started through the jfr actuator endpoint
+@Name("com.springcloud.demo.apigateway.UpstreamCall")
+@Label("Upstream Call")
+@Description("Proxied call to the downstream service, until response headers arrive")
+@Category({"Gateway"})
+@Enabled(false)
+@StackTrace(false)
+public class UpstreamCallEvent extends Event {
+
+    @Label("Route Id")
+    public String routeId;
+
+    @Label("Method")
+    public String method;
+
+    @Label("URI")
+    public String uri;
+
+    @Label("Status")
+    public int status;
+
+    public void complete(String routeId, String method, String uri, int status) {
+        end();
+        if (shouldCommit()) {
+            this.routeId = routeId;
+            this.method = method;
+            this.uri = uri;
+            this.status = status;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.springcloud.demo.apigateway.monitoring.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Disabled until a recording is started through the jfr actuator endpoint
+@Name("com.springcloud.demo.apigateway.UserLookup")
+@Label("User Lookup")
+@Description("UserClient.findByEmail call made to authorize a request")
+@Category({"Gateway"})
+@Enabled(false)
+@StackTrace(false)
+public class UserLookupEvent extends Event {
+
+    @Label("Route Id")
+    public String routeId;
+
+    @Label("Cache Hit")
+    public boolean cacheHit;
+
+    @Label("Found")
+    public boolean found;
+
+    public void complete(String routeId, boolean cacheHit, boolean found) {
+        end();
+        if (shouldCommit()) {
+            this.routeId = routeId;
+            this.cacheHit = cacheHit;
+            this.found = found;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.springcloud.demo.apigateway.monitoring.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Records the time from JVM start to the first response received from a downstream service, the
+ * figure the startup modes of the Dockerfile (jar, cds, aot) and the native executable are compared by.
+ */
+@Slf4j
+@Component
+@Order(NettyRoutingFilter.ORDER - 4)
+public class FirstProxiedRequestFilter implements GlobalFilter {
+
+    private final AtomicBoolean recorded = new AtomicBoolean();
+    private final MeterRegistry meterRegistry;
+
+    public FirstProxiedRequestFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (recorded.get()) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange)
+                .doOnSuccess(done -> {
+                    if (exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR) != null
+                            && recorded.compareAndSet(false, true)) {
+                        record(ManagementFactory.getRuntimeMXBean().getUptime());
+                    }
+                });
+    }
+
+    private void record(long uptimeMillis) {
+        log.info("First proxied request answered {} ms after JVM start, resident set {} KB", uptimeMillis,
+                residentSetKb());
+        TimeGauge.builder("gateway.startup.first_proxied_request", () -> uptimeMillis, TimeUnit.MILLISECONDS)
+                .register(meterRegistry);
+    }
+
+    // Linux only, lets the JVM and native builds be compared by memory as well
+    private static long residentSetKb() {
+        try (Stream<String> lines = Files.lines(Path.of("/proc/self/status"))) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .mapToLong(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                    .findFirst()
+                    .orElse(-1);
+        } catch (IOException | UncheckedIOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.springcloud.demo.apigateway.monitoring.timing;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum GatewayPhase {
+    ROUTE("route", "Route matching"),
+    JWT("jwt", "JWT verification"),
+    USER_LOOKUP("user", "User lookup"),
+    UPSTREAM("upstream", "Downstream service");
+
+    private final String metricName;
+    private final String description;
+}
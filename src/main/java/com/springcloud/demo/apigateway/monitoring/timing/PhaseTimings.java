@@ -0,0 +1,74 @@
+package com.springcloud.demo.apigateway.monitoring.timing;
+
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Per request phase timers kept as an exchange attribute. When timing is disabled the attribute
+ * is never set, so the static helpers cost a single attribute lookup.
+ */
+public class PhaseTimings {
+
+    public static final String ATTRIBUTE = PhaseTimings.class.getName();
+
+    private static final GatewayPhase[] PHASES = GatewayPhase.values();
+
+    private final long[] starts = new long[PHASES.length];
+    private final long[] durations = new long[PHASES.length];
+    private final boolean exposeHeader;
+
+    public PhaseTimings(boolean exposeHeader) {
+        this.exposeHeader = exposeHeader;
+    }
+
+    public static void start(ServerWebExchange exchange, GatewayPhase phase) {
+        PhaseTimings timings = exchange.getAttribute(ATTRIBUTE);
+        if (timings != null) {
+            timings.start(phase);
+        }
+    }
+
+    public static void stop(ServerWebExchange exchange, GatewayPhase phase) {
+        PhaseTimings timings = exchange.getAttribute(ATTRIBUTE);
+        if (timings != null) {
+            timings.stop(phase);
+        }
+    }
+
+    public void start(GatewayPhase phase) {
+        starts[phase.ordinal()] = System.nanoTime();
+    }
+
+    public void stop(GatewayPhase phase) {
+        long start = starts[phase.ordinal()];
+        if (start != 0) {
+            // Accumulate so phases entered more than once (e.g. retries) add up
+            durations[phase.ordinal()] += System.nanoTime() - start;
+            starts[phase.ordinal()] = 0;
+        }
+    }
+
+    public long getDuration(GatewayPhase phase) {
+        return durations[phase.ordinal()];
+    }
+
+    public boolean isExposeHeader() {
+        return exposeHeader;
+    }
+
+    public String toServerTimingHeader() {
+        StringBuilder header = new StringBuilder(96);
+        for (GatewayPhase phase : PHASES) {
+            long duration = durations[phase.ordinal()];
+            if (duration == 0) {
+                continue;
+            }
+            if (!header.isEmpty()) {
+                header.append(", ");
+            }
+            header.append(phase.getMetricName())
+                    .append(";desc=\"").append(phase.getDescription()).append('"')
+                    .append(";dur=").append(duration / 1_000L / 1000.0);
+        }
+        return header.toString();
+    }
+}
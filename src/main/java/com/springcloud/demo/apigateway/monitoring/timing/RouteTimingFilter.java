@@ -0,0 +1,21 @@
+package com.springcloud.demo.apigateway.monitoring.timing;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+// Global filters only run once a route matched, so this closes the route matching phase
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RouteTimingFilter implements GlobalFilter {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        PhaseTimings.stop(exchange, GatewayPhase.ROUTE);
+        return chain.filter(exchange);
+    }
+}
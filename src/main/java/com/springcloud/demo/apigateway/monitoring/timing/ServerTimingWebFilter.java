@@ -0,0 +1,102 @@
+package com.springcloud.demo.apigateway.monitoring.timing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ServerTimingWebFilter implements WebFilter {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+    public static final String DEBUG_TIMING_HEADER = "X-Debug-Timing";
+
+    private static final GatewayPhase[] PHASES = GatewayPhase.values();
+
+    private final MeterRegistry meterRegistry;
+
+    // One timer per phase for each route, indexed by phase ordinal
+    private final Map<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+    @Value("${gateway.timing.enabled:false}")
+    private boolean enabled;
+
+    @Value("${gateway.timing.header-sample-rate:0.0}")
+    private double headerSampleRate;
+
+    @Value("${gateway.timing.admin-token:}")
+    private String adminToken;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+
+        PhaseTimings timings = new PhaseTimings(isHeaderRequested(exchange));
+        timings.start(GatewayPhase.ROUTE);
+        exchange.getAttributes().put(PhaseTimings.ATTRIBUTE, timings);
+
+        if (timings.isExposeHeader()) {
+            exchange.getResponse().beforeCommit(() -> {
+                String header = timings.toServerTimingHeader();
+                if (!header.isEmpty()) {
+                    exchange.getResponse().getHeaders().add(SERVER_TIMING_HEADER, header);
+                }
+                return Mono.empty();
+            });
+        }
+
+        return chain.filter(exchange)
+                .doFinally(signal -> record(exchange, timings));
+    }
+
+    private boolean isHeaderRequested(ServerWebExchange exchange) {
+        if (!adminToken.isEmpty()
+                && adminToken.equals(exchange.getRequest().getHeaders().getFirst(DEBUG_TIMING_HEADER))) {
+            return true;
+        }
+        return headerSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < headerSampleRate;
+    }
+
+    private void record(ServerWebExchange exchange, PhaseTimings timings) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "none";
+
+        Timer[] routeTimers = timers.computeIfAbsent(routeId, this::createTimers);
+        for (GatewayPhase phase : PHASES) {
+            long duration = timings.getDuration(phase);
+            if (duration == 0) {
+                continue;
+            }
+            routeTimers[phase.ordinal()].record(duration, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer[] createTimers(String routeId) {
+        Timer[] routeTimers = new Timer[PHASES.length];
+        for (GatewayPhase phase : PHASES) {
+            routeTimers[phase.ordinal()] = Timer.builder("gateway.phase.duration")
+                    .tag("phase", phase.getMetricName())
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+        return routeTimers;
+    }
+}
@@ -0,0 +1,60 @@
+package com.springcloud.demo.apigateway.monitoring.timing;
+
+import com.springcloud.demo.apigateway.monitoring.jfr.UpstreamCallEvent;
+import jdk.jfr.EventType;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+// Runs right before the proxied call, the phase ends once downstream response headers arrive
+@Component
+@Order(NettyRoutingFilter.ORDER - 1)
+public class UpstreamTimingFilter implements GlobalFilter {
+
+    // The event outlives this call, so it is only created while a recording wants it
+    private static final EventType UPSTREAM_CALL = EventType.getEventType(UpstreamCallEvent.class);
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        PhaseTimings timings = exchange.getAttribute(PhaseTimings.ATTRIBUTE);
+        UpstreamCallEvent event = UPSTREAM_CALL.isEnabled() ? new UpstreamCallEvent() : null;
+        if (timings == null && event == null) {
+            return chain.filter(exchange);
+        }
+
+        if (timings != null) {
+            timings.start(GatewayPhase.UPSTREAM);
+        }
+        if (event != null) {
+            event.begin();
+        }
+
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    if (timings != null) {
+                        timings.stop(GatewayPhase.UPSTREAM);
+                    }
+                    if (event == null) {
+                        return;
+                    }
+
+                    Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+                    URI uri = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    event.complete(
+                            route != null ? route.getId() : null,
+                            exchange.getRequest().getMethod().name(),
+                            uri != null ? uri.toString() : null,
+                            status != null ? status.value() : 0);
+                });
+    }
+}
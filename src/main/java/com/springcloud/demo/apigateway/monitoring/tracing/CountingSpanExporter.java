@@ -0,0 +1,41 @@
+package com.springcloud.demo.apigateway.monitoring.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.Collection;
+
+// Exposes how many spans actually left the gateway, the batch processor drops silently when full
+public class CountingSpanExporter implements SpanExporter {
+
+    private final SpanExporter delegate;
+    private final Counter exported;
+    private final Counter failed;
+
+    public CountingSpanExporter(SpanExporter delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.exported = meterRegistry.counter("gateway.tracing.spans.exported", "result", "success");
+        this.failed = meterRegistry.counter("gateway.tracing.spans.exported", "result", "failure");
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        int count = spans.size();
+        CompletableResultCode result = delegate.export(spans);
+        result.whenComplete(() -> (result.isSuccess() ? exported : failed).increment(count));
+        return result;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return delegate.shutdown();
+    }
+}
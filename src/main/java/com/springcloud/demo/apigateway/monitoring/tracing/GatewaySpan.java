@@ -0,0 +1,32 @@
+package com.springcloud.demo.apigateway.monitoring.tracing;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Backend neutral view of the span that covers one request through the gateway.
+ */
+public interface GatewaySpan {
+
+    String ATTRIBUTE = GatewaySpan.class.getName();
+
+    String getTraceId();
+
+    void setHttpRequest(String method, String url);
+
+    void setHttpStatus(int status);
+
+    // Client errors (4xx)
+    void setError(boolean error);
+
+    // Server errors (5xx) and unexpected exceptions
+    void setFault(boolean fault);
+
+    void addException(Throwable throwable);
+
+    void setExceptionMessage(String message);
+
+    // Writes the propagation headers expected by the downstream services
+    void injectHeaders(BiConsumer<String, String> setter);
+
+    void end();
+}
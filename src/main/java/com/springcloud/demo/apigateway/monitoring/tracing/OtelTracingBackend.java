@@ -0,0 +1,104 @@
+package com.springcloud.demo.apigateway.monitoring.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import org.springframework.http.HttpHeaders;
+
+import java.util.function.BiConsumer;
+
+public class OtelTracingBackend implements TracingBackend {
+
+    private static final AttributeKey<String> HTTP_METHOD = AttributeKey.stringKey("http.request.method");
+    private static final AttributeKey<String> URL_FULL = AttributeKey.stringKey("url.full");
+    private static final AttributeKey<Long> HTTP_STATUS = AttributeKey.longKey("http.response.status_code");
+    static final AttributeKey<Boolean> CLIENT_ERROR = AttributeKey.booleanKey("gateway.client_error");
+    private static final AttributeKey<String> EXCEPTION_MESSAGE = AttributeKey.stringKey("exception.message");
+
+    private static final TextMapGetter<HttpHeaders> HEADERS_GETTER = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(HttpHeaders carrier) {
+            return carrier.keySet();
+        }
+
+        @Override
+        public String get(HttpHeaders carrier, String key) {
+            return carrier == null ? null : carrier.getFirst(key);
+        }
+    };
+
+    private final Tracer tracer;
+    private final TextMapPropagator propagator;
+
+    public OtelTracingBackend(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer("api-gateway");
+        this.propagator = openTelemetry.getPropagators().getTextMapPropagator();
+    }
+
+    @Override
+    public GatewaySpan startSpan(String name, HttpHeaders incomingHeaders) {
+        Context parent = propagator.extract(Context.root(), incomingHeaders, HEADERS_GETTER);
+
+        Span span = tracer.spanBuilder(name)
+                .setParent(parent)
+                .setSpanKind(SpanKind.SERVER)
+                .startSpan();
+
+        return new OtelSpan(span, parent.with(span), propagator);
+    }
+
+    private record OtelSpan(Span span, Context context, TextMapPropagator propagator) implements GatewaySpan {
+
+        @Override
+        public String getTraceId() {
+            return span.getSpanContext().getTraceId();
+        }
+
+        @Override
+        public void setHttpRequest(String method, String url) {
+            span.setAttribute(HTTP_METHOD, method);
+            span.setAttribute(URL_FULL, url);
+        }
+
+        @Override
+        public void setHttpStatus(int status) {
+            span.setAttribute(HTTP_STATUS, (long) status);
+        }
+
+        @Override
+        public void setError(boolean error) {
+            span.setAttribute(CLIENT_ERROR, error);
+        }
+
+        @Override
+        public void setFault(boolean fault) {
+            span.setStatus(fault ? StatusCode.ERROR : StatusCode.UNSET);
+        }
+
+        @Override
+        public void addException(Throwable throwable) {
+            span.recordException(throwable);
+        }
+
+        @Override
+        public void setExceptionMessage(String message) {
+            span.setAttribute(EXCEPTION_MESSAGE, message);
+        }
+
+        @Override
+        public void injectHeaders(BiConsumer<String, String> setter) {
+            propagator.inject(context, setter, BiConsumer::accept);
+        }
+
+        @Override
+        public void end() {
+            span.end();
+        }
+    }
+}
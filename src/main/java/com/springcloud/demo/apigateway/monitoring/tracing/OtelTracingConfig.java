@@ -0,0 +1,94 @@
+package com.springcloud.demo.apigateway.monitoring.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.baggage.propagation.W3CBaggagePropagator;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.contrib.awsxray.propagator.AwsXrayPropagator;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "gateway.tracing.backend", havingValue = "otel")
+public class OtelTracingConfig {
+
+    @Value("${spring.application.name}")
+    private String serviceName;
+
+    @Value("${gateway.tracing.otlp.endpoint:http://localhost:4318/v1/traces}")
+    private String endpoint;
+
+    @Value("${gateway.tracing.otlp.max-queue-size:2048}")
+    private int maxQueueSize;
+
+    @Value("${gateway.tracing.otlp.max-export-batch-size:512}")
+    private int maxExportBatchSize;
+
+    @Value("${gateway.tracing.otlp.schedule-delay:1s}")
+    private Duration scheduleDelay;
+
+    @Value("${gateway.tracing.propagators:tracecontext,xray}")
+    private List<String> propagators;
+
+    @Bean
+    public SpanExporter otlpSpanExporter(MeterRegistry meterRegistry) {
+        return new CountingSpanExporter(
+                OtlpHttpSpanExporter.builder().setEndpoint(endpoint).build(),
+                meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public OpenTelemetrySdk openTelemetry(SpanExporter spanExporter, TailSamplingPolicy tailSamplingPolicy) {
+        SpanProcessor spanProcessor = BatchSpanProcessor.builder(spanExporter)
+                .setMaxQueueSize(maxQueueSize)
+                .setMaxExportBatchSize(maxExportBatchSize)
+                .setScheduleDelay(scheduleDelay)
+                .build();
+
+        if (tailSamplingPolicy.isEnabled()) {
+            spanProcessor = new TailSamplingSpanProcessor(spanProcessor, tailSamplingPolicy);
+        }
+
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(
+                        Resource.create(Attributes.of(AttributeKey.stringKey("service.name"), serviceName))))
+                .addSpanProcessor(spanProcessor)
+                .build();
+
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setPropagators(ContextPropagators.create(TextMapPropagator.composite(
+                        propagators.stream().map(OtelTracingConfig::propagator).toList())))
+                .build();
+    }
+
+    @Bean
+    public TracingBackend otelTracingBackend(OpenTelemetry openTelemetry) {
+        return new OtelTracingBackend(openTelemetry);
+    }
+
+    private static TextMapPropagator propagator(String name) {
+        return switch (name.trim()) {
+            case "tracecontext" -> W3CTraceContextPropagator.getInstance();
+            case "baggage" -> W3CBaggagePropagator.getInstance();
+            case "xray" -> AwsXrayPropagator.getInstance();
+            default -> throw new IllegalArgumentException("Unknown tracing propagator: " + name);
+        };
+    }
+}
@@ -0,0 +1,115 @@
+package com.springcloud.demo.apigateway.monitoring.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Completed spans grouped by trace id until the decision window of the trace expires. The window
+ * starts when the root span arrives, so child spans that end first (e.g. streamed X-Ray
+ * subsegments) share the decision of their root. A trace whose root never arrives is decided
+ * after {@code rootWait}. The estimated size of the buffered spans is hard bounded, spans that
+ * would overflow it are decided on their own right away.
+ */
+public class TailSamplingBuffer<T> {
+
+    private final TailSamplingPolicy policy;
+    private final Consumer<T> sink;
+    private final long decisionWindowNanos;
+    private final long rootWaitNanos;
+    private final long maxBufferedBytes;
+
+    private final Map<String, PendingTrace<T>> traces = new ConcurrentHashMap<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    TailSamplingBuffer(TailSamplingPolicy policy, Consumer<T> sink, long decisionWindowNanos, long rootWaitNanos,
+                       long maxBufferedBytes) {
+        this.policy = policy;
+        this.sink = sink;
+        this.decisionWindowNanos = decisionWindowNanos;
+        this.rootWaitNanos = rootWaitNanos;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    public void add(String traceId, T span, boolean root, long sizeBytes, long durationNanos, boolean failed) {
+        if (bufferedBytes.addAndGet(sizeBytes) > maxBufferedBytes) {
+            bufferedBytes.addAndGet(-sizeBytes);
+            if (policy.keep(durationNanos, failed, 1, true)) {
+                sink.accept(span);
+            }
+            return;
+        }
+        buffered.incrementAndGet();
+
+        traces.compute(traceId, (id, trace) -> {
+            if (trace == null) {
+                trace = new PendingTrace<>(System.nanoTime());
+            }
+            trace.add(span, root, sizeBytes, durationNanos, failed);
+            return trace;
+        });
+    }
+
+    public int size() {
+        return buffered.get();
+    }
+
+    public long sizeBytes() {
+        return bufferedBytes.get();
+    }
+
+    public void flushExpired() {
+        long now = System.nanoTime();
+        traces.forEach((traceId, trace) -> {
+            long rootAt = trace.rootAt;
+            if (rootAt != 0 ? now - rootAt >= decisionWindowNanos : now - trace.createdAt >= rootWaitNanos) {
+                decide(traceId, trace);
+            }
+        });
+    }
+
+    public void flushAll() {
+        traces.forEach(this::decide);
+    }
+
+    private void decide(String traceId, PendingTrace<T> trace) {
+        // Once removed no other thread can append to this trace, late spans start a new one
+        if (!traces.remove(traceId, trace)) {
+            return;
+        }
+        buffered.addAndGet(-trace.spans.size());
+        bufferedBytes.addAndGet(-trace.sizeBytes);
+
+        if (policy.keep(trace.maxDurationNanos, trace.failed, trace.spans.size(), false)) {
+            trace.spans.forEach(sink);
+        }
+    }
+
+    private static class PendingTrace<T> {
+        private final long createdAt;
+        private final List<T> spans = new ArrayList<>(2);
+        private volatile long rootAt;
+        private long sizeBytes;
+        private long maxDurationNanos;
+        private boolean failed;
+
+        PendingTrace(long createdAt) {
+            this.createdAt = createdAt;
+        }
+
+        void add(T span, boolean root, long sizeBytes, long durationNanos, boolean failed) {
+            spans.add(span);
+            this.sizeBytes += sizeBytes;
+            maxDurationNanos = Math.max(maxDurationNanos, durationNanos);
+            this.failed |= failed;
+            if (root && rootAt == 0) {
+                rootAt = System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.springcloud.demo.apigateway.monitoring.tracing;
+
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+
+// Streamed subsegments are buffered with their segment so both get the same decision
+public class TailSamplingEmitter extends Emitter {
+
+    // Rough retained size of an entity without children and of each exception in its cause
+    private static final long ENTITY_BYTES = 512;
+    private static final long EXCEPTION_BYTES = 2048;
+
+    private final Emitter delegate;
+    private final TailSamplingBuffer<Entity> buffer;
+
+    public TailSamplingEmitter(Emitter delegate, TailSamplingPolicy policy) {
+        this.delegate = delegate;
+        this.buffer = policy.newBuffer(this::emit);
+    }
+
+    @Override
+    public boolean sendSegment(Segment segment) {
+        add(segment.getTraceId().toString(), segment, true);
+        return true;
+    }
+
+    @Override
+    public boolean sendSubsegment(Subsegment subsegment) {
+        add(subsegment.getParentSegment().getTraceId().toString(), subsegment, false);
+        return true;
+    }
+
+    private void add(String traceId, Entity entity, boolean root) {
+        long durationNanos = (long) ((entity.getEndTime() - entity.getStartTime()) * 1_000_000_000L);
+        boolean failed = entity.isError() || entity.isFault() || entity.isThrottle();
+        buffer.add(traceId, entity, root, estimateBytes(entity), durationNanos, failed);
+    }
+
+    private void emit(Entity entity) {
+        if (entity instanceof Segment segment) {
+            delegate.sendSegment(segment);
+        } else {
+            delegate.sendSubsegment((Subsegment) entity);
+        }
+    }
+
+    private static long estimateBytes(Entity entity) {
+        long bytes = ENTITY_BYTES + EXCEPTION_BYTES * entity.getCause().getExceptions().size();
+        for (Subsegment subsegment : entity.getSubsegments()) {
+            bytes += estimateBytes(subsegment);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,94 @@
+package com.springcloud.demo.apigateway.monitoring.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps slow and failing traces plus a random baseline. Completed spans are buffered for
+ * {@code decision-window} so every span of a trace gets the same decision.
+ */
+@Component
+@RequiredArgsConstructor
+public class TailSamplingPolicy implements DisposableBean {
+
+    private final MeterRegistry meterRegistry;
+
+    @Getter
+    @Value("${gateway.tracing.tail-sampling.enabled:false}")
+    private boolean enabled;
+
+    @Value("${gateway.tracing.tail-sampling.decision-window:5s}")
+    private Duration decisionWindow;
+
+    @Value("${gateway.tracing.tail-sampling.latency-threshold:1s}")
+    private Duration latencyThreshold;
+
+    @Value("${gateway.tracing.tail-sampling.baseline-rate:0.05}")
+    private double baselineRate;
+
+    @Value("${gateway.tracing.tail-sampling.root-wait:30s}")
+    private Duration rootWait;
+
+    @Value("${gateway.tracing.tail-sampling.max-buffered-size:16MB}")
+    private DataSize maxBufferedSize;
+
+    private ScheduledExecutorService scheduler;
+
+    public synchronized <T> TailSamplingBuffer<T> newBuffer(Consumer<T> sink) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "tail-sampling");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        TailSamplingBuffer<T> buffer = new TailSamplingBuffer<>(this, sink, decisionWindow.toNanos(),
+                rootWait.toNanos(), maxBufferedSize.toBytes());
+        long period = Math.max(decisionWindow.toMillis() / 4, 10);
+        scheduler.scheduleAtFixedRate(buffer::flushExpired, period, period, TimeUnit.MILLISECONDS);
+        meterRegistry.gauge("gateway.tracing.tail_sampling.buffered", buffer, TailSamplingBuffer::size);
+        meterRegistry.gauge("gateway.tracing.tail_sampling.buffered_bytes", buffer, TailSamplingBuffer::sizeBytes);
+        return buffer;
+    }
+
+    boolean keep(long durationNanos, boolean failed, int spans, boolean overflow) {
+        String reason;
+        if (failed) {
+            reason = "failure";
+        } else if (durationNanos >= latencyThreshold.toNanos()) {
+            reason = "latency";
+        } else if (ThreadLocalRandom.current().nextDouble() < baselineRate) {
+            reason = "baseline";
+        } else {
+            reason = overflow ? "overflow" : "none";
+        }
+
+        boolean keep = !reason.equals("none") && !reason.equals("overflow");
+        String decision = keep ? "kept" : "dropped";
+        meterRegistry.counter("gateway.tracing.tail_sampling.traces", "decision", decision, "reason", reason)
+                .increment();
+        meterRegistry.counter("gateway.tracing.tail_sampling.spans", "decision", decision)
+                .increment(spans);
+        return keep;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
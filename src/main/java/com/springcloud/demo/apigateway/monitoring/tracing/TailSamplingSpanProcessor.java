@@ -0,0 +1,64 @@
+package com.springcloud.demo.apigateway.monitoring.tracing;
+
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+// Sits in front of the batch processor so dropped traces never reach the exporter
+public class TailSamplingSpanProcessor implements SpanProcessor {
+
+    // Rough retained size of a span without attributes and of each attribute, event and link
+    private static final long SPAN_BYTES = 256;
+    private static final long ENTRY_BYTES = 96;
+
+    private final SpanProcessor delegate;
+    private final TailSamplingBuffer<ReadableSpan> buffer;
+
+    public TailSamplingSpanProcessor(SpanProcessor delegate, TailSamplingPolicy policy) {
+        this.delegate = delegate;
+        this.buffer = policy.newBuffer(delegate::onEnd);
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+        delegate.onStart(parentContext, span);
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return delegate.isStartRequired();
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        SpanData data = span.toSpanData();
+        boolean failed = data.getStatus().getStatusCode() == StatusCode.ERROR
+                || Boolean.TRUE.equals(span.getAttribute(OtelTracingBackend.CLIENT_ERROR));
+        // Spans continuing a trace from another process are the local root
+        boolean root = !data.getParentSpanContext().isValid() || data.getParentSpanContext().isRemote();
+        long sizeBytes = SPAN_BYTES
+                + ENTRY_BYTES * (data.getAttributes().size() + data.getEvents().size() + data.getLinks().size());
+        buffer.add(span.getSpanContext().getTraceId(), span, root, sizeBytes, span.getLatencyNanos(), failed);
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        buffer.flushAll();
+        return delegate.forceFlush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        buffer.flushAll();
+        return delegate.shutdown();
+    }
+}
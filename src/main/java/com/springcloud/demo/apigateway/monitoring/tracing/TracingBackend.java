@@ -0,0 +1,11 @@
+package com.springcloud.demo.apigateway.monitoring.tracing;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Tracing implementation selected with {@code gateway.tracing.backend} ({@code xray} or {@code otel}).
+ */
+public interface TracingBackend {
+
+    GatewaySpan startSpan(String name, HttpHeaders incomingHeaders);
+}
@@ -0,0 +1,103 @@
+package com.springcloud.demo.apigateway.monitoring.tracing;
+
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+@Component
+@ConditionalOnProperty(name = "gateway.tracing.backend", havingValue = "xray", matchIfMissing = true)
+public class XRayTracingBackend implements TracingBackend {
+
+    public static final String TRACE_HEADER = "X-Amzn-Trace-Id";
+
+    public XRayTracingBackend(TailSamplingPolicy tailSamplingPolicy) {
+        if (tailSamplingPolicy.isEnabled()) {
+            AWSXRayRecorder recorder = AWSXRay.getGlobalRecorder();
+
+            // Every segment is recorded, the tail sampling emitter decides what leaves the gateway
+            recorder.setSamplingStrategy(new AllSamplingStrategy());
+            recorder.setEmitter(new TailSamplingEmitter(recorder.getEmitter(), tailSamplingPolicy));
+        }
+    }
+
+    @Override
+    public GatewaySpan startSpan(String name, HttpHeaders incomingHeaders) {
+        Segment segment = AWSXRay.beginSegment(name);
+
+        // The segment travels with the reactive pipeline, not with the event loop thread
+        AWSXRay.clearTraceEntity();
+
+        return new XRaySpan(segment);
+    }
+
+    private static class XRaySpan implements GatewaySpan {
+
+        private final Segment segment;
+        private final Map<String, Object> responseInfo = new HashMap<>();
+
+        XRaySpan(Segment segment) {
+            this.segment = segment;
+        }
+
+        @Override
+        public String getTraceId() {
+            return segment.getTraceId().toString();
+        }
+
+        @Override
+        public void setHttpRequest(String method, String url) {
+            Map<String, Object> requestInfo = new HashMap<>();
+            requestInfo.put("method", method);
+            requestInfo.put("url", url);
+            segment.putHttp("request", requestInfo);
+        }
+
+        @Override
+        public void setHttpStatus(int status) {
+            responseInfo.put("status", status);
+        }
+
+        @Override
+        public void setError(boolean error) {
+            segment.setError(error);
+        }
+
+        @Override
+        public void setFault(boolean fault) {
+            segment.setFault(fault);
+        }
+
+        @Override
+        public void addException(Throwable throwable) {
+            segment.addException(throwable);
+        }
+
+        @Override
+        public void setExceptionMessage(String message) {
+            segment.setMetadata(Map.of("exception", Map.of("message", message)));
+        }
+
+        @Override
+        public void injectHeaders(BiConsumer<String, String> setter) {
+            // Create header to send to microservices
+            setter.accept(TRACE_HEADER, String.format("Root=%s;Parent=%s;Sampled=1",
+                    segment.getTraceId().toString(), segment.getId()));
+        }
+
+        @Override
+        public void end() {
+            segment.putHttp("response", responseInfo);
+            if (segment.end()) {
+                AWSXRay.getGlobalRecorder().sendSegment(segment);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.springcloud.demo.apigateway.nativeimage;
+
+import com.springcloud.demo.apigateway.ApiGatewayApplication;
+import com.springcloud.demo.apigateway.transport.Transport;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+
+/**
+ * Types the gateway and its libraries only reach by name or by reflection. Evaluated at build time,
+ * so the classpath scan of the filter factories costs nothing at runtime.
+ */
+public class GatewayRuntimeHints implements RuntimeHintsRegistrar {
+
+    // jjwt-api instantiates the implementation by name, it is only a runtime dependency
+    private static final List<String> JJWT_TYPES = List.of(
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtHeaderBuilder",
+            "io.jsonwebtoken.impl.DefaultClaimsBuilder",
+            "io.jsonwebtoken.impl.io.StandardCompressionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardSecureDigestAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardEncryptionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyOperations",
+            "io.jsonwebtoken.impl.security.StandardHashAlgorithms",
+            "io.jsonwebtoken.impl.security.KeysBridge",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer");
+
+    // Segments are serialized by Jackson, the sampling rules deserialized from a bundled manifest
+    private static final List<String> XRAY_TYPES = List.of(
+            "com.amazonaws.xray.entities.EntityImpl",
+            "com.amazonaws.xray.entities.SegmentImpl",
+            "com.amazonaws.xray.entities.SubsegmentImpl",
+            "com.amazonaws.xray.entities.Cause",
+            "com.amazonaws.xray.entities.ThrowableDescription",
+            "com.amazonaws.xray.entities.AWSLogReference",
+            "com.amazonaws.xray.strategy.sampling.manifest.SamplingRuleManifest",
+            "com.amazonaws.xray.strategy.sampling.rule.SamplingRule");
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (String type : JJWT_TYPES) {
+            hints.reflection().registerTypeIfPresent(classLoader, type,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+        }
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+        for (String type : XRAY_TYPES) {
+            hints.reflection().registerTypeIfPresent(classLoader, type, MemberCategory.values());
+        }
+        hints.resources().registerPattern("com/amazonaws/xray/sdk.properties");
+        hints.resources().registerPattern("com/amazonaws/xray/strategy/sampling/*.json");
+
+        for (Transport transport : Transport.values()) {
+            if (transport.availabilityClass() != null) {
+                hints.reflection().registerTypeIfPresent(classLoader, transport.availabilityClass(),
+                        MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+        }
+
+        registerFilterConfigs(hints, classLoader);
+    }
+
+    // Route filter arguments are bound onto the Config class of each factory by reflection
+    private static void registerFilterConfigs(RuntimeHints hints, ClassLoader classLoader) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AssignableTypeFilter(AbstractGatewayFilterFactory.class));
+        String basePackage = ClassUtils.getPackageName(ApiGatewayApplication.class);
+        for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+            Class<?> factory = ClassUtils.resolveClassName(candidate.getBeanClassName(), classLoader);
+            Class<?> config = GenericTypeResolver.resolveTypeArgument(factory, AbstractGatewayFilterFactory.class);
+            if (config != null) {
+                hints.reflection().registerType(config, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.DECLARED_FIELDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.springcloud.demo.apigateway.nativeimage;
+
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.client.users.dto.UserRoleDTO;
+import com.springcloud.demo.apigateway.exceptions.dto.ErrorResponseDTO;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reachability metadata the native executable needs beyond what Spring AOT infers. The DTOs are
+ * read and written by Jackson through their Lombok accessors.
+ */
+@Configuration
+@ImportRuntimeHints(GatewayRuntimeHints.class)
+@RegisterReflectionForBinding({UserDTO.class, UserRoleDTO.class, ErrorResponseDTO.class})
+public class NativeImageConfig {
+}
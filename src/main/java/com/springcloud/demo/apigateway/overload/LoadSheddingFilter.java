@@ -0,0 +1,58 @@
+package com.springcloud.demo.apigateway.overload;
+
+import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sheds the routes of lower priority once the gateway is overloaded, before any authentication or
+ * upstream work is spent on them. Shed requests get a 503 with Retry-After.
+ */
+@Component
+@RequiredArgsConstructor
+public class LoadSheddingFilter implements GlobalFilter, Ordered {
+
+    private static final SimpleException OVERLOADED = new SimpleException(
+            HttpStatus.SERVICE_UNAVAILABLE.value(), "Gateway overloaded");
+
+    private final OverloadDetector overloadDetector;
+    private final OverloadProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    // Right after the access log, so shed requests are still logged
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 2;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "unknown";
+        Priority priority = properties.getPriorities().getOrDefault(routeId, Priority.NORMAL);
+
+        if (priority.isShedAt(overloadDetector.load())) {
+            meterRegistry.counter("gateway.overload.shed", "route", routeId, "priority", priority.name()).increment();
+            exchange.getResponse().getHeaders()
+                    .set(HttpHeaders.RETRY_AFTER, Long.toString(properties.getRetryAfter().toSeconds()));
+            return Mono.error(OVERLOADED);
+        }
+
+        overloadDetector.started();
+        return chain.filter(exchange).doFinally(signal -> overloadDetector.finished());
+    }
+}
@@ -0,0 +1,25 @@
+package com.springcloud.demo.apigateway.overload;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorResourceFactory;
+import reactor.netty.http.HttpResources;
+
+@Configuration
+@EnableConfigurationProperties(OverloadProperties.class)
+public class OverloadConfig {
+
+    // The server and the proxy client share these event loops
+    @Bean
+    public OverloadDetector overloadDetector(OverloadProperties properties,
+                                             ObjectProvider<ReactorResourceFactory> resourceFactory,
+                                             MeterRegistry meterRegistry) {
+        ReactorResourceFactory factory = resourceFactory.getIfAvailable();
+        return new OverloadDetector(properties,
+                factory != null ? factory.getLoopResources().onServer(true) : HttpResources.get().onServer(true),
+                meterRegistry);
+    }
+}
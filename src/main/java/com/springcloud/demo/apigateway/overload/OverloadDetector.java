@@ -0,0 +1,133 @@
+package com.springcloud.demo.apigateway.overload;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tells how loaded the gateway is from three signals: how late tasks run on the event loops, how
+ * many requests wait for an upstream connection and how many requests are in flight. The first
+ * two are sampled by a probe running on every event loop, the last is read on each request.
+ */
+public class OverloadDetector implements DisposableBean {
+
+    static final String PENDING_CONNECTIONS = "reactor.netty.connection.provider.pending.connections";
+
+    private final OverloadProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private AtomicLongArray lagNanos = new AtomicLongArray(0);
+    private volatile Priority.Load sampledLoad = Priority.Load.NONE;
+    private volatile boolean stopped;
+
+    public OverloadDetector(OverloadProperties properties, EventLoopGroup eventLoops, MeterRegistry meterRegistry) {
+        this.properties = properties;
+
+        Gauge.builder("gateway.overload.in_flight", inFlight, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("gateway.overload.event_loop_lag", this, detector -> detector.maxLagNanos() / 1e6)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("gateway.overload.load", this, detector -> detector.load().ordinal()).register(meterRegistry);
+
+        if (properties.isEnabled()) {
+            startProbes(eventLoops);
+        }
+    }
+
+    public Priority.Load load() {
+        Priority.Load current = properties.getInFlight().of(inFlight.get());
+        return current.compareTo(sampledLoad) > 0 ? current : sampledLoad;
+    }
+
+    public void started() {
+        inFlight.incrementAndGet();
+    }
+
+    public void finished() {
+        inFlight.decrementAndGet();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public void destroy() {
+        stopped = true;
+    }
+
+    // A probe rescheduled every interval measures how late it runs, which is how long requests wait
+    // for the same event loop
+    private void startProbes(EventLoopGroup eventLoops) {
+        List<EventExecutor> executors = new ArrayList<>();
+        eventLoops.forEach(executors::add);
+        lagNanos = new AtomicLongArray(executors.size());
+
+        for (int i = 0; i < executors.size(); i++) {
+            new Probe(executors.get(i), i).schedule();
+        }
+    }
+
+    private void sample() {
+        Priority.Load lag = properties.getEventLoopLag().of(TimeUnit.NANOSECONDS.toMillis(maxLagNanos()));
+        Priority.Load pending = properties.getPendingAcquires().of(pendingAcquires());
+        sampledLoad = lag.compareTo(pending) > 0 ? lag : pending;
+    }
+
+    private long maxLagNanos() {
+        long max = 0;
+        for (int i = 0; i < lagNanos.length(); i++) {
+            max = Math.max(max, lagNanos.get(i));
+        }
+        return max;
+    }
+
+    // Reactor Netty publishes its pool gauges to the global registry once pool metrics are enabled
+    private static long pendingAcquires() {
+        double pending = 0;
+        for (Gauge gauge : Metrics.globalRegistry.find(PENDING_CONNECTIONS).gauges()) {
+            pending += gauge.value();
+        }
+        return (long) pending;
+    }
+
+    private class Probe implements Runnable {
+
+        private final EventExecutor executor;
+        private final int slot;
+        private long expected;
+
+        Probe(EventExecutor executor, int slot) {
+            this.executor = executor;
+            this.slot = slot;
+        }
+
+        void schedule() {
+            long interval = properties.getProbeInterval().toNanos();
+            expected = System.nanoTime() + interval;
+            executor.schedule(this, interval, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void run() {
+            if (stopped) {
+                return;
+            }
+
+            lagNanos.set(slot, Math.max(System.nanoTime() - expected, 0));
+            if (slot == 0) {
+                sample();
+            }
+            schedule();
+        }
+    }
+}
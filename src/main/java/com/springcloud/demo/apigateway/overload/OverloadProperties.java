@@ -0,0 +1,48 @@
+package com.springcloud.demo.apigateway.overload;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.overload")
+public class OverloadProperties {
+
+    private boolean enabled = true;
+
+    // Routes not listed are NORMAL
+    private Map<String, Priority> priorities = new HashMap<>();
+
+    private Duration probeInterval = Duration.ofMillis(100);
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    // Each signal past its elevated threshold sheds SHEDDABLE routes, past overloaded NORMAL ones too.
+    // The event loop lag is in milliseconds, pending acquires and in flight are request counts
+    private Threshold eventLoopLag = new Threshold(50, 200);
+    private Threshold pendingAcquires = new Threshold(50, 200);
+    private Threshold inFlight = new Threshold(1000, 2000);
+
+    @Data
+    public static class Threshold {
+        private long elevated;
+        private long overloaded;
+
+        public Threshold() {
+        }
+
+        public Threshold(long elevated, long overloaded) {
+            this.elevated = elevated;
+            this.overloaded = overloaded;
+        }
+
+        Priority.Load of(long value) {
+            if (value >= overloaded) {
+                return Priority.Load.OVERLOADED;
+            }
+            return value >= elevated ? Priority.Load.ELEVATED : Priority.Load.NONE;
+        }
+    }
+}
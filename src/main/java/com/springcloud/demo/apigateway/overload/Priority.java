@@ -0,0 +1,27 @@
+package com.springcloud.demo.apigateway.overload;
+
+/**
+ * How long a route keeps being served as the gateway gets overloaded.
+ */
+public enum Priority {
+
+    // Logins and bookings, never shed
+    CRITICAL(Load.NONE),
+    NORMAL(Load.OVERLOADED),
+    // Docs and other traffic nobody waits for, the first to go
+    SHEDDABLE(Load.ELEVATED);
+
+    private final Load shedFrom;
+
+    Priority(Load shedFrom) {
+        this.shedFrom = shedFrom;
+    }
+
+    public boolean isShedAt(Load load) {
+        return shedFrom != Load.NONE && load.compareTo(shedFrom) >= 0;
+    }
+
+    public enum Load {
+        NONE, ELEVATED, OVERLOADED
+    }
+}
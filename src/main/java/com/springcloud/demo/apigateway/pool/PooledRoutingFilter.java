@@ -0,0 +1,81 @@
+package com.springcloud.demo.apigateway.pool;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * The gateway routing filter, with lb:// routes proxied through the pool of their service, over
+ * h2c where the service and the chosen instance allow it.
+ */
+public class PooledRoutingFilter extends NettyRoutingFilter {
+
+    static final String H2C_ATTRIBUTE = PooledRoutingFilter.class.getName() + ".h2c";
+
+    private final UpstreamPools pools;
+
+    public PooledRoutingFilter(HttpClient httpClient, ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                               HttpClientProperties properties, UpstreamPools pools) {
+        super(httpClient, headersFilters, properties);
+        this.pools = pools;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String service = UpstreamPools.service(exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR));
+        if (service == null) {
+            return super.filter(exchange, chain);
+        }
+        return super.filter(exchange, chain)
+                .doOnSuccess(done -> {
+                    if (exchange.getAttributes().containsKey(H2C_ATTRIBUTE)) {
+                        pools.h2cAnswered(instance(exchange));
+                    }
+                })
+                .onErrorMap(error -> {
+                    if (exchange.getAttributes().containsKey(H2C_ATTRIBUTE)) {
+                        pools.h2cFailed(service, instance(exchange), error);
+                    }
+                    return pools.rejected(service, error);
+                });
+    }
+
+    @Override
+    protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        String service = UpstreamPools.service(route);
+        if (service == null) {
+            return super.getHttpClient(route, exchange);
+        }
+        HttpClient client = pools.h2cClient(service, instance(exchange));
+        if (client != null) {
+            exchange.getAttributes().put(H2C_ATTRIBUTE, Boolean.TRUE);
+        } else {
+            // A retry may have moved the request to an HTTP/1.1 instance
+            exchange.getAttributes().remove(H2C_ATTRIBUTE);
+            client = pools.client(service);
+        }
+        // Same per route override as the default filter
+        Object connectTimeout = route.getMetadata().get(RouteMetadataUtils.CONNECT_TIMEOUT_ATTR);
+        if (connectTimeout != null) {
+            return client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Integer.parseInt(connectTimeout.toString()));
+        }
+        return client;
+    }
+
+    // The instance chosen by the load balancer
+    private static URI instance(ServerWebExchange exchange) {
+        return exchange.getRequiredAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+    }
+}
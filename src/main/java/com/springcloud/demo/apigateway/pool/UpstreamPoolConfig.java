@@ -0,0 +1,37 @@
+package com.springcloud.demo.apigateway.pool;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+/**
+ * Takes over proxying from the default {@code NettyRoutingFilter}, which has to be switched off
+ * with {@code spring.cloud.gateway.global-filter.netty-routing.enabled=false}.
+ */
+@Configuration
+@EnableConfigurationProperties(UpstreamPoolProperties.class)
+@ConditionalOnProperty(name = "spring.cloud.gateway.global-filter.netty-routing.enabled", havingValue = "false")
+public class UpstreamPoolConfig {
+
+    @Bean
+    public UpstreamPools upstreamPools(UpstreamPoolProperties properties, HttpClientProperties httpClientProperties,
+                                       ObjectProvider<HttpClientCustomizer> customizers, MeterRegistry meterRegistry) {
+        return new UpstreamPools(properties, httpClientProperties, customizers.orderedStream().toList(), meterRegistry);
+    }
+
+    @Bean
+    public PooledRoutingFilter pooledRoutingFilter(HttpClient httpClient,
+                                                   ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                                   HttpClientProperties httpClientProperties, UpstreamPools upstreamPools) {
+        return new PooledRoutingFilter(httpClient, headersFilters, httpClientProperties, upstreamPools);
+    }
+}
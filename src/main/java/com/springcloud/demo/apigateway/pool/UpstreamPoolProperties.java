@@ -0,0 +1,46 @@
+package com.springcloud.demo.apigateway.pool;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.upstream-pool")
+public class UpstreamPoolProperties {
+
+    // Services not listed get the defaults, a listed service starts from the built-in values
+    private Pool defaults = new Pool();
+    private Map<String, Pool> services = new HashMap<>();
+
+    // An instance that failed an h2c request before ever answering one is called over HTTP/1.1 this long
+    private Duration http1FallbackTtl = Duration.ofMinutes(5);
+
+    public Pool pool(String service) {
+        return services.getOrDefault(service, defaults);
+    }
+
+    @Data
+    public static class Pool {
+
+        // Per instance of the service
+        private int maxConnections = 100;
+
+        // Requests waiting for a connection, more are refused right away
+        private int pendingAcquireMaxCount = 200;
+        private Duration acquireTimeout = Duration.ofSeconds(5);
+
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+
+        // Idle and expired connections are also closed in the background at this interval, zero disables it
+        private Duration evictionInterval = Duration.ofSeconds(30);
+
+        // HTTP/2 with prior knowledge, requests are multiplexed over a few connections per instance
+        private boolean h2c = false;
+        private int h2cConnections = 2;
+        private int maxConcurrentStreams = 100;
+    }
+}
@@ -0,0 +1,231 @@
+package com.springcloud.demo.apigateway.pool;
+
+import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.http2.Http2Exception;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.PrematureCloseException;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.pool.PoolAcquirePendingLimitException;
+import reactor.pool.PoolAcquireTimeoutException;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link HttpClient} with its own connection pool per lb:// service, so a backend holding all
+ * of its connections only queues its own requests. Reactor Netty publishes the pool gauges and the
+ * {@code reactor.netty.connection.provider.pending.connections.time} acquire latency timer, tagged
+ * with the service as {@code name}.
+ * <p>
+ * Services with h2c get a second client that multiplexes requests over HTTP/2 with prior
+ * knowledge. An instance whose first h2c requests fail is called over HTTP/1.1 for a while, others of
+ * the same service keep HTTP/2.
+ */
+public class UpstreamPools implements DisposableBean {
+
+    static final String ACTIVE_CONNECTIONS = "reactor.netty.connection.provider.active.connections";
+    static final String MAX_CONNECTIONS = "reactor.netty.connection.provider.max.connections";
+
+    private static final SimpleException UPSTREAM_BUSY = new SimpleException(
+            HttpStatus.SERVICE_UNAVAILABLE.value(), "Service busy, try again later");
+
+    private final Map<String, Upstream> upstreams = new ConcurrentHashMap<>();
+    // host:port of instances, those that answered over h2c and those sent back to HTTP/1.1 until a nano time
+    private final Set<String> h2cInstances = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> http1Instances = new ConcurrentHashMap<>();
+    private final UpstreamPoolProperties properties;
+    private final HttpClientProperties httpClientProperties;
+    private final List<HttpClientCustomizer> customizers;
+    private final MeterRegistry meterRegistry;
+
+    public UpstreamPools(UpstreamPoolProperties properties, HttpClientProperties httpClientProperties,
+                         List<HttpClientCustomizer> customizers, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.httpClientProperties = httpClientProperties;
+        this.customizers = customizers;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public HttpClient client(String service) {
+        return upstreams.computeIfAbsent(service, this::create).client();
+    }
+
+    /**
+     * The h2c client of the service, or null when the service or this instance use HTTP/1.1.
+     */
+    public HttpClient h2cClient(String service, URI instance) {
+        HttpClient client = upstreams.computeIfAbsent(service, this::create).h2cClient();
+        if (client == null) {
+            return null;
+        }
+        Long until = http1Instances.get(instance(instance));
+        if (until != null) {
+            if (System.nanoTime() - until < 0) {
+                return null;
+            }
+            http1Instances.remove(instance(instance), until);
+        }
+        return client;
+    }
+
+    void h2cAnswered(URI instance) {
+        h2cInstances.add(instance(instance));
+    }
+
+    // Resets and protocol errors on an instance that never answered over h2c mean it only speaks HTTP/1.1
+    void h2cFailed(String service, URI instance, Throwable error) {
+        String key = instance(instance);
+        if (h2cInstances.contains(key) || !isProtocolFailure(error)) {
+            return;
+        }
+        if (http1Instances.put(key, System.nanoTime() + properties.getHttp1FallbackTtl().toNanos()) == null) {
+            meterRegistry.counter("gateway.upstream.h2c.fallback", "service", service).increment();
+        }
+    }
+
+    // Connections in use out of the maximum, over every instance the pool has connected to
+    public double utilization(String service) {
+        double max = sum(MAX_CONNECTIONS, service);
+        return max > 0 ? sum(ACTIVE_CONNECTIONS, service) / max : 0;
+    }
+
+    // lb://rooms-ms is pooled as rooms-ms, routes to a fixed URI share the gateway client
+    static String service(Route route) {
+        if (route != null && "lb".equals(route.getUri().getScheme()) && route.getUri().getHost() != null) {
+            return route.getUri().getHost();
+        }
+        return null;
+    }
+
+    /**
+     * Maps a full wait queue or an acquire timeout to a 503, any other error is returned as is.
+     */
+    Throwable rejected(String service, Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PoolAcquirePendingLimitException) {
+                return reject(service, "pending_full");
+            }
+            if (cause instanceof PoolAcquireTimeoutException) {
+                return reject(service, "acquire_timeout");
+            }
+        }
+        return error;
+    }
+
+    private static boolean isProtocolFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof Http2Exception || cause instanceof PrematureCloseException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String instance(URI uri) {
+        return uri.getHost() + ":" + uri.getPort();
+    }
+
+    private SimpleException reject(String service, String reason) {
+        meterRegistry.counter("gateway.upstream.pool.rejected", "service", service, "reason", reason).increment();
+        return UPSTREAM_BUSY;
+    }
+
+    private Upstream create(String service) {
+        UpstreamPoolProperties.Pool pool = properties.pool(service);
+        ConnectionProvider provider = builder(service, pool).build();
+
+        ConnectionProvider h2cProvider = null;
+        HttpClient h2cClient = null;
+        if (pool.isH2c()) {
+            // Streams per connection and connections per instance, the pending limits are shared with HTTP/1.1
+            h2cProvider = builder(service, pool)
+                    .allocationStrategy(Http2AllocationStrategy.builder()
+                            .maxConcurrentStreams(pool.getMaxConcurrentStreams())
+                            .maxConnections(pool.getH2cConnections())
+                            .minConnections(1)
+                            .build())
+                    .build();
+            h2cClient = configure(HttpClient.create(h2cProvider).protocol(HttpProtocol.H2C));
+        }
+
+        Gauge.builder("gateway.upstream.pool.utilization", () -> utilization(service))
+                .tag("service", service)
+                .register(meterRegistry);
+        return new Upstream(provider, configure(HttpClient.create(provider)), h2cProvider, h2cClient);
+    }
+
+    private static ConnectionProvider.Builder builder(String service, UpstreamPoolProperties.Pool pool) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(service)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                // Also feeds the pending acquires of the overload detector
+                .metrics(true);
+        if (!pool.getEvictionInterval().isZero()) {
+            builder.evictInBackground(pool.getEvictionInterval());
+        }
+        return builder;
+    }
+
+    // The settings the gateway applies to its own client, so every service is called the same way
+    private HttpClient configure(HttpClient client) {
+        DataSize maxHeaderSize = httpClientProperties.getMaxHeaderSize();
+        DataSize maxInitialLineLength = httpClientProperties.getMaxInitialLineLength();
+        HttpClient configured = client
+                .httpResponseDecoder(spec -> {
+                    if (maxHeaderSize != null) {
+                        spec.maxHeaderSize((int) maxHeaderSize.toBytes());
+                    }
+                    if (maxInitialLineLength != null) {
+                        spec.maxInitialLineLength((int) maxInitialLineLength.toBytes());
+                    }
+                    return spec;
+                })
+                .compress(httpClientProperties.isCompression())
+                .wiretap(httpClientProperties.isWiretap());
+        if (httpClientProperties.getConnectTimeout() != null) {
+            configured = configured.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, httpClientProperties.getConnectTimeout());
+        }
+        for (HttpClientCustomizer customizer : customizers) {
+            configured = customizer.customize(configured);
+        }
+        return configured;
+    }
+
+    private static double sum(String meter, String service) {
+        return Metrics.globalRegistry.find(meter).tag("name", service).gauges().stream()
+                .mapToDouble(Gauge::value)
+                .sum();
+    }
+
+    @Override
+    public void destroy() {
+        Flux.fromIterable(upstreams.values())
+                .flatMap(upstream -> upstream.h2cProvider() == null
+                        ? upstream.provider().disposeLater()
+                        : upstream.provider().disposeLater().and(upstream.h2cProvider().disposeLater()))
+                .blockLast();
+    }
+
+    private record Upstream(ConnectionProvider provider, HttpClient client,
+                            ConnectionProvider h2cProvider, HttpClient h2cClient) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.springcloud.demo.apigateway.ratelimit;
+
+import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import com.springcloud.demo.apigateway.security.filters.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Limits the requests of each client on a route, keyed by the user id set by
+ * JwtAuthenticationFilter or by the client IP on public routes. It has to be listed after
+ * JwtAuthenticationFilter to see the user. The client IP is the peer address, X-Forwarded-For is
+ * only used behind the proxies of gateway.rate-limit.trusted-proxies.
+ */
+@Component
+public class RateLimitFilter extends AbstractGatewayFilterFactory<RateLimitFilter.Config> {
+
+    static final String LIMIT_HEADER = "RateLimit-Limit";
+    static final String REMAINING_HEADER = "RateLimit-Remaining";
+    static final String RESET_HEADER = "RateLimit-Reset";
+
+    private static final SimpleException TOO_MANY_REQUESTS = new SimpleException(
+            HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests");
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final TrustedProxies trustedProxies;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        super(RateLimitFilter.Config.class);
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.trustedProxies = TrustedProxies.of(properties.getTrustedProxies());
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+        // limit requests per period, with bursts up to burst requests (limit when not set)
+        private int limit = 100;
+        private Duration period = Duration.ofSeconds(1);
+        private int burst;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        RateLimiter rateLimiter = new RateLimiter(config.getLimit(), config.getPeriod(), config.getBurst(),
+                properties.getMaxBuckets());
+
+        return (exchange, chain) -> {
+            long result = rateLimiter.tryAcquire(key(exchange), System.nanoTime());
+
+            HttpHeaders headers = exchange.getResponse().getHeaders();
+            headers.set(LIMIT_HEADER, Integer.toString(rateLimiter.capacity()));
+            headers.set(REMAINING_HEADER, Integer.toString(rateLimiter.remaining(result)));
+            headers.set(RESET_HEADER, Long.toString(rateLimiter.resetSeconds(result)));
+
+            String routeId = routeId(exchange);
+            if (result < 0) {
+                headers.set(HttpHeaders.RETRY_AFTER, Long.toString(rateLimiter.retryAfterSeconds(result)));
+                meterRegistry.counter("gateway.rate_limit.requests", "route", routeId, "result", "rejected")
+                        .increment();
+                return Mono.error(TOO_MANY_REQUESTS);
+            }
+
+            meterRegistry.counter("gateway.rate_limit.requests", "route", routeId, "result", "allowed").increment();
+            return chain.filter(exchange);
+        };
+    }
+
+    private String key(ServerWebExchange exchange) {
+        String userId = exchange.getAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE);
+        if (userId != null) {
+            return userId;
+        }
+        return "ip:" + trustedProxies.clientIp(exchange.getRequest());
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "unknown";
+    }
+}
@@ -0,0 +1,17 @@
+package com.springcloud.demo.apigateway.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+
+    // Per route, past this many clients the full buckets are dropped
+    private int maxBuckets = 100_000;
+
+    // Addresses or CIDR ranges whose X-Forwarded-For is believed, none by default
+    private List<String> trustedProxies = List.of();
+}
@@ -0,0 +1,87 @@
+package com.springcloud.demo.apigateway.ratelimit;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Token buckets of one route by client key. Buckets refill lazily when used, and full buckets are
+ * dropped by the caller that pushes the map past {@code maxBuckets}, so no thread runs in the
+ * background.
+ */
+public class RateLimiter {
+
+    // Lookups of existing buckets take no lock, creating one only locks its bin of the map
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final int capacity;
+    private final long interval;
+    private final long tolerance;
+    private final int maxBuckets;
+
+    public RateLimiter(int limit, Duration period, int burst, int maxBuckets) {
+        this.capacity = burst > 0 ? burst : limit;
+        this.interval = Math.max(period.toNanos() / limit, 1);
+        this.tolerance = interval * capacity;
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Returns the nanos until the bucket of the key is full again, negated when the request is
+     * rejected.
+     */
+    public long tryAcquire(String key, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(now));
+            if (buckets.size() > maxBuckets) {
+                evictFull(now);
+            }
+        }
+        return bucket.tryAcquire(now, interval, tolerance);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int remaining(long result) {
+        if (result < 0) {
+            return 0;
+        }
+        return (int) ((tolerance - result) / interval);
+    }
+
+    public long resetSeconds(long result) {
+        return seconds(Math.abs(result));
+    }
+
+    // A token is back once the bucket is no more than one token away from full
+    public long retryAfterSeconds(long result) {
+        return seconds(Math.max(-result - (tolerance - interval), 0));
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    // A request racing with the eviction may take a token from a dropped bucket, which only lets it
+    // through where a new bucket would have as well
+    private void evictFull(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static long seconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,40 @@
+package com.springcloud.demo.apigateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as the single instant at which it is full again (the generic cell rate
+ * algorithm), so taking a token is one compare-and-set and refilling is implied by the clock.
+ */
+final class TokenBucket {
+
+    private final AtomicLong fullAt;
+
+    TokenBucket(long now) {
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Returns the nanos until the bucket is full again, negated when no token was left.
+     *
+     * @param interval  nanos to refill one token
+     * @param tolerance nanos to refill the whole bucket
+     */
+    long tryAcquire(long now, long interval, long tolerance) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + interval;
+            if (next - now > tolerance) {
+                return -Math.max(current - now, 1);
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return next - now;
+            }
+        }
+    }
+
+    // A full bucket behaves like a new one, so it can be dropped without changing any decision
+    boolean isFull(long now) {
+        return fullAt.get() - now <= 0;
+    }
+}
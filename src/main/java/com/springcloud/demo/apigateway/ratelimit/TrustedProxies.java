@@ -0,0 +1,133 @@
+package com.springcloud.demo.apigateway.ratelimit;
+
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Addresses and CIDR ranges of the proxies in front of the gateway. X-Forwarded-For is only read
+ * when the connection comes from one of them, and then only up to the first entry a trusted proxy
+ * did not add, so a client cannot pick its own address.
+ */
+final class TrustedProxies {
+
+    // Only literals are parsed, a host name would be resolved
+    private static final Pattern IPV4 = Pattern.compile("(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})");
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    private final List<Range> ranges;
+
+    private TrustedProxies(List<Range> ranges) {
+        this.ranges = ranges;
+    }
+
+    static TrustedProxies of(List<String> proxies) {
+        List<Range> ranges = new ArrayList<>();
+        for (String proxy : proxies) {
+            if (proxy.isBlank()) {
+                continue;
+            }
+            int slash = proxy.indexOf('/');
+            InetAddress address = literal(slash < 0 ? proxy.trim() : proxy.substring(0, slash).trim());
+            if (address == null) {
+                throw new IllegalArgumentException("Trusted proxy is not an IP address or CIDR range: " + proxy);
+            }
+            int bits = address.getAddress().length * 8;
+            int prefix = slash < 0 ? bits : Integer.parseInt(proxy.substring(slash + 1).trim());
+            if (prefix < 0 || prefix > bits) {
+                throw new IllegalArgumentException("Invalid prefix length in trusted proxy " + proxy);
+            }
+            ranges.add(new Range(address.getAddress(), prefix));
+        }
+        return new TrustedProxies(List.copyOf(ranges));
+    }
+
+    String clientIp(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return "unknown";
+        }
+        InetAddress peer = remoteAddress.getAddress();
+        List<String> forwarded = request.getHeaders().get("X-Forwarded-For");
+        if (forwarded == null || !contains(peer)) {
+            return peer.getHostAddress();
+        }
+
+        // Each proxy appends the address it saw, the client is the last one no trusted proxy sent
+        List<String> hops = new ArrayList<>();
+        forwarded.forEach(value -> {
+            for (String hop : value.split(",")) {
+                if (!hop.isBlank()) {
+                    hops.add(hop.trim());
+                }
+            }
+        });
+        String client = peer.getHostAddress();
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            client = hops.get(i);
+            InetAddress hop = literal(client);
+            if (hop == null || !contains(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    private boolean contains(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        for (Range range : ranges) {
+            if (range.contains(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static InetAddress literal(String value) {
+        try {
+            Matcher ipv4 = IPV4.matcher(value);
+            if (ipv4.matches()) {
+                byte[] bytes = new byte[4];
+                for (int i = 0; i < 4; i++) {
+                    int octet = Integer.parseInt(ipv4.group(i + 1));
+                    if (octet > 255) {
+                        return null;
+                    }
+                    bytes[i] = (byte) octet;
+                }
+                return InetAddress.getByAddress(bytes);
+            }
+            // With a colon the value is only ever parsed as an IPv6 literal
+            return IPV6.matcher(value).matches() ? InetAddress.getByName(value) : null;
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private record Range(byte[] network, int prefix) {
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int full = prefix / 8;
+            for (int i = 0; i < full; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int rest = prefix % 8;
+            if (rest == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - rest);
+            return (address[full] & mask) == (network[full] & mask);
+        }
+    }
+}
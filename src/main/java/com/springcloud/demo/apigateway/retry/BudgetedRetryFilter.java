@@ -0,0 +1,113 @@
+package com.springcloud.demo.apigateway.retry;
+
+import com.springcloud.demo.apigateway.upload.StreamingUploadFilter;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Retries idempotent requests whose upstream connection failed, with jittered backoff and within
+ * the {@link RetryBudget} of the service. Each attempt goes through the load balancer again, which
+ * moves lb:// routes to the next instance.
+ */
+@Component
+public class BudgetedRetryFilter extends AbstractGatewayFilterFactory<BudgetedRetryFilter.Config> {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final RetryBudgets budgets;
+
+    public BudgetedRetryFilter(RetryBudgets budgets) {
+        super(BudgetedRetryFilter.Config.class);
+        this.budgets = budgets;
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+        private int retries = 2;
+        private Duration firstBackoff = Duration.ofMillis(20);
+        private Duration maxBackoff = Duration.ofMillis(200);
+        private double jitter = 0.5;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            String service = service(exchange);
+            RetryBudget budget = budgets.get(service);
+            budget.deposit();
+
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() == HttpMethod.GET || request.getMethod() == HttpMethod.HEAD) {
+                return retrying(exchange, chain, config, service, budget);
+            }
+            // Streamed uploads are never held in full, so there is nothing to send again
+            if (request.getMethod() == HttpMethod.POST && request.getHeaders().containsKey(IDEMPOTENCY_KEY_HEADER)
+                    && !exchange.getAttributes().containsKey(StreamingUploadFilter.STREAMING_ATTRIBUTE)) {
+                // Every attempt has to send the body again
+                return ServerWebExchangeUtils.cacheRequestBody(exchange, cached ->
+                        retrying(exchange.mutate().request(cached).build(), chain, config, service, budget));
+            }
+            return chain.filter(exchange);
+        };
+    }
+
+    private Mono<Void> retrying(ServerWebExchange exchange, GatewayFilterChain chain, Config config, String service,
+                                RetryBudget budget) {
+        return Mono.defer(() -> chain.filter(exchange))
+                .retryWhen(Retry.backoff(config.getRetries(), config.getFirstBackoff())
+                        .maxBackoff(config.getMaxBackoff())
+                        .jitter(config.getJitter())
+                        .filter(error -> isTransient(error) && !exchange.getResponse().isCommitted()
+                                && withdraw(service, budget))
+                        .doBeforeRetry(signal -> {
+                            budgets.retried(service);
+                            ServerWebExchangeUtils.reset(exchange);
+                        })
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private boolean withdraw(String service, RetryBudget budget) {
+        if (budget.tryWithdraw()) {
+            return true;
+        }
+        budgets.exhausted(service);
+        return false;
+    }
+
+    // Refused or reset connections, timeouts are not retried as the request may have been processed
+    private static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // lb://rooms-ms is budgeted as rooms-ms, routes to a fixed URI by their own id
+    private static String service(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return "unknown";
+        }
+        if ("lb".equals(route.getUri().getScheme()) && route.getUri().getHost() != null) {
+            return route.getUri().getHost();
+        }
+        return route.getId();
+    }
+}
@@ -0,0 +1,45 @@
+package com.springcloud.demo.apigateway.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket of retries: every request deposits {@code ratio} of a token and every retry takes a
+ * whole one, so retries stay under that share of the traffic once the initial {@code capacity} is
+ * spent. Tokens are kept in thousandths to stay on a single AtomicLong.
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final AtomicLong balance;
+    private final long deposit;
+    private final long capacity;
+
+    public RetryBudget(double ratio, int capacity) {
+        this.deposit = Math.round(ratio * SCALE);
+        this.capacity = capacity * SCALE;
+        this.balance = new AtomicLong(this.capacity);
+    }
+
+    public void deposit() {
+        if (balance.get() < capacity) {
+            balance.accumulateAndGet(deposit, (current, amount) -> Math.min(current + amount, capacity));
+        }
+    }
+
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    public double tokens() {
+        return (double) balance.get() / SCALE;
+    }
+}
@@ -0,0 +1,16 @@
+package com.springcloud.demo.apigateway.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RetryProperties.class)
+public class RetryBudgetConfig {
+
+    @Bean
+    public RetryBudgets retryBudgets(RetryProperties properties, MeterRegistry meterRegistry) {
+        return new RetryBudgets(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,42 @@
+package com.springcloud.demo.apigateway.retry;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link RetryBudget} per service, shared by every route to it.
+ */
+public class RetryBudgets {
+
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+    private final RetryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public RetryBudgets(RetryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public RetryBudget get(String service) {
+        return budgets.computeIfAbsent(service, this::create);
+    }
+
+    public void retried(String service) {
+        meterRegistry.counter("gateway.retry.attempts", "service", service).increment();
+    }
+
+    public void exhausted(String service) {
+        meterRegistry.counter("gateway.retry.budget_exhausted", "service", service).increment();
+    }
+
+    private RetryBudget create(String service) {
+        RetryBudget budget = new RetryBudget(properties.getBudgetRatio(), properties.getBudgetCapacity());
+        Gauge.builder("gateway.retry.budget", budget, RetryBudget::tokens)
+                .tag("service", service)
+                .register(meterRegistry);
+        return budget;
+    }
+}
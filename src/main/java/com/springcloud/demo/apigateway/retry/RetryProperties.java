@@ -0,0 +1,15 @@
+package com.springcloud.demo.apigateway.retry;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.retry")
+public class RetryProperties {
+
+    // Share of the requests of a service that may be retried
+    private double budgetRatio = 0.1;
+
+    // Retries available at once, before the ratio has to pay for them
+    private int budgetCapacity = 10;
+}
@@ -1,21 +1,44 @@
 package com.springcloud.demo.apigateway.security.filters;
 
 import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.client.users.dto.UserRoleDTO;
 import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import com.springcloud.demo.apigateway.monitoring.jfr.AuthorizationEvent;
+import com.springcloud.demo.apigateway.monitoring.jfr.JwtVerificationEvent;
+import com.springcloud.demo.apigateway.monitoring.jfr.UserLookupEvent;
+import com.springcloud.demo.apigateway.monitoring.timing.GatewayPhase;
+import com.springcloud.demo.apigateway.monitoring.timing.PhaseTimings;
 import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
 import lombok.Getter;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtAuthenticationFilter extends AbstractGatewayFilterFactory<JwtAuthenticationFilter.Config> {
 
+    public static final String USER_ID_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".userId";
+    // Sorted and comma separated, so users with the same roles get the same value
+    public static final String USER_ROLES_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".userRoles";
+
+    // Stackless and immutable, so a single instance can be shared by every rejected request
+    private static final SimpleException TOKEN_REQUIRED = new SimpleException(
+            HttpStatus.UNAUTHORIZED.value(), "Token is required");
+    private static final SimpleException TOKEN_NOT_VALID = new SimpleException(
+            HttpStatus.UNAUTHORIZED.value(), "Token not valid");
+    private static final SimpleException NOT_HAVE_PERMISSION = new SimpleException(
+            HttpStatus.UNAUTHORIZED.value(), "Not have permission");
+
     private final JwtUtils jwtUtils;
     private final UserClient userClient;
 
@@ -37,23 +60,53 @@ public class JwtAuthenticationFilter extends AbstractGatewayFilterFactory<JwtAut
 
     @Override
     public GatewayFilter apply(Config config) {
+        String allowedRoles = String.join(",", config.getAllowedRoles());
+
         return (exchange, chain) -> {
             ServerHttpRequest request = exchange.getRequest();
+            String routeId = routeId(exchange);
+
+            AuthorizationEvent authorizationEvent = new AuthorizationEvent();
+            authorizationEvent.begin();
 
             String bearerToken = request.getHeaders().getFirst("Authorization");
 
             if (bearerToken == null) {
-                return Mono.error(new SimpleException(
-                        HttpStatus.UNAUTHORIZED.value(), "Token is required")
-                );
+                authorizationEvent.complete(routeId, false, allowedRoles, TOKEN_REQUIRED.getMessage());
+                return Mono.error(TOKEN_REQUIRED);
             }
 
-            String token = bearerToken.split(" ")[1];
+            int separator = bearerToken.indexOf(' ');
+            if (separator < 0) {
+                authorizationEvent.complete(routeId, false, allowedRoles, TOKEN_NOT_VALID.getMessage());
+                return Mono.error(TOKEN_NOT_VALID);
+            }
+
+            String token = bearerToken.substring(separator + 1);
+
+            PhaseTimings.start(exchange, GatewayPhase.JWT);
+            JwtVerificationEvent jwtEvent = new JwtVerificationEvent();
+            jwtEvent.begin();
+            boolean isTokenValid = jwtUtils.isTokenValid(token);
+            jwtEvent.complete(routeId, isTokenValid);
+            PhaseTimings.stop(exchange, GatewayPhase.JWT);
 
-            if (jwtUtils.isTokenValid(token)) {
+            if (isTokenValid) {
                 String email = jwtUtils.getEmailFromToken(token);
 
+                PhaseTimings.start(exchange, GatewayPhase.USER_LOOKUP);
+                UserLookupEvent userLookupEvent = new UserLookupEvent();
+                userLookupEvent.begin();
+
                 return userClient.findByEmail(email)
+                        .doOnSuccess(user -> {
+                            PhaseTimings.stop(exchange, GatewayPhase.USER_LOOKUP);
+                            userLookupEvent.complete(routeId, false, user != null);
+                        })
+                        .doOnError(throwable -> {
+                            PhaseTimings.stop(exchange, GatewayPhase.USER_LOOKUP);
+                            userLookupEvent.complete(routeId, false, false);
+                        })
                         .flatMap(user -> {
                             boolean isRoleValid = false;
                             if (config.getAllowedRoles().isEmpty()) {
@@ -65,11 +118,13 @@ public class JwtAuthenticationFilter extends AbstractGatewayFilterFactory<JwtAut
                             }
 
                             if (!isRoleValid) {
-                                return Mono.error(new SimpleException(
-                                        HttpStatus.UNAUTHORIZED.value(), "Not have permission")
-                                );
+                                authorizationEvent.complete(routeId, false, allowedRoles, NOT_HAVE_PERMISSION.getMessage());
+                                return Mono.error(NOT_HAVE_PERMISSION);
                             }
 
+                            authorizationEvent.complete(routeId, true, allowedRoles, null);
+                            exchange.getAttributes().put(USER_ID_ATTRIBUTE, user.getId().toString());
+                            exchange.getAttributes().put(USER_ROLES_ATTRIBUTE, roles(user));
                             exchange.getRequest().mutate()
                                     .header("X-UserId", user.getId().toString())
                                     .build();
@@ -78,9 +133,25 @@ public class JwtAuthenticationFilter extends AbstractGatewayFilterFactory<JwtAut
                         });
             }
 
-            return Mono.error(new SimpleException(
-                    HttpStatus.UNAUTHORIZED.value(), "Token not valid")
-            );
+            authorizationEvent.complete(routeId, false, allowedRoles, TOKEN_NOT_VALID.getMessage());
+            return Mono.error(TOKEN_NOT_VALID);
         };
     }
+
+    private static String roles(UserDTO user) {
+        if (user.getRoles() == null) {
+            return "";
+        }
+        return user.getRoles().stream()
+                .map(UserRoleDTO::getRole)
+                .filter(Objects::nonNull)
+                .sorted()
+                .distinct()
+                .collect(Collectors.joining(","));
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : null;
+    }
 }
@@ -0,0 +1,60 @@
+package com.springcloud.demo.apigateway.transport;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerInitializedEvent;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.server.reactive.HttpHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binds more listening sockets on the port of the web server once it started, all with
+ * SO_REUSEPORT, so the kernel spreads accepted connections over several event loops. They are built
+ * by the same {@link NettyReactiveWebServerFactory} as the first one, so every server.* setting
+ * (SSL and ALPN, HTTP/2, compression, header sizes, idle timeout) and customizer applies to them.
+ */
+@Slf4j
+public class ReusePortAcceptors implements ApplicationListener<ReactiveWebServerInitializedEvent>, DisposableBean {
+
+    private final int acceptors;
+    private final ObjectProvider<HttpHandler> httpHandler;
+    private final ObjectProvider<NettyReactiveWebServerFactory> serverFactory;
+    private final List<WebServer> servers = new ArrayList<>();
+
+    public ReusePortAcceptors(int acceptors, ObjectProvider<HttpHandler> httpHandler,
+                              ObjectProvider<NettyReactiveWebServerFactory> serverFactory) {
+        this.acceptors = acceptors;
+        this.httpHandler = httpHandler;
+        this.serverFactory = serverFactory;
+    }
+
+    @Override
+    public void onApplicationEvent(ReactiveWebServerInitializedEvent event) {
+        // The management server has its own namespace and keeps a single socket
+        if (acceptors <= 1 || event.getApplicationContext().getServerNamespace() != null) {
+            return;
+        }
+
+        // The first server is already bound, the factory is not used again but for these
+        int port = event.getWebServer().getPort();
+        NettyReactiveWebServerFactory factory = serverFactory.getObject();
+        factory.setPort(port);
+
+        for (int i = 1; i < acceptors; i++) {
+            WebServer server = factory.getWebServer(httpHandler.getObject());
+            server.start();
+            servers.add(server);
+        }
+        log.info("Bound {} extra SO_REUSEPORT acceptors on port {}", acceptors - 1, port);
+    }
+
+    @Override
+    public void destroy() {
+        servers.forEach(WebServer::stop);
+    }
+}
@@ -0,0 +1,52 @@
+package com.springcloud.demo.apigateway.transport;
+
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Channel implementation in use, detected in the order Reactor Netty picks them.
+ */
+public enum Transport {
+    IO_URING("io.netty.incubator.channel.uring.IOUring"),
+    EPOLL("io.netty.channel.epoll.Epoll"),
+    KQUEUE("io.netty.channel.kqueue.KQueue"),
+    NIO(null);
+
+    private final String availabilityClass;
+
+    Transport(String availabilityClass) {
+        this.availabilityClass = availabilityClass;
+    }
+
+    public boolean isNative() {
+        return this != NIO;
+    }
+
+    // Null for NIO, which is always there
+    public String availabilityClass() {
+        return availabilityClass;
+    }
+
+    public static Transport resolve(boolean preferNative) {
+        if (!preferNative || !LoopResources.hasNativeSupport()) {
+            return NIO;
+        }
+        for (Transport transport : values()) {
+            if (transport.isAvailable()) {
+                return transport;
+            }
+        }
+        return NIO;
+    }
+
+    // Looked up by name, the native transports are optional dependencies
+    private boolean isAvailable() {
+        if (availabilityClass == null) {
+            return true;
+        }
+        try {
+            return (Boolean) Class.forName(availabilityClass).getMethod("isAvailable").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.springcloud.demo.apigateway.transport;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerInitializedEvent;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorResourceFactory;
+import org.springframework.http.server.reactive.HttpHandler;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Event loops and socket settings of the performance profile. The loops replace the global Reactor
+ * Netty ones for the server, the proxy client and the WebClient alike, so the overload detector
+ * still probes the loops requests run on.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(TransportProperties.class)
+@ConditionalOnProperty(name = "gateway.transport.enabled", havingValue = "true")
+public class TransportConfig {
+
+    @Bean
+    public ReactorResourceFactory reactorResourceFactory(TransportProperties properties) {
+        ReactorResourceFactory factory = new ReactorResourceFactory();
+        factory.setUseGlobalResources(false);
+        factory.setLoopResourcesSupplier(() -> LoopResources.create("gateway-http",
+                properties.getSelectThreads() > 0 ? properties.getSelectThreads() : LoopResources.DEFAULT_IO_SELECT_COUNT,
+                properties.getWorkerThreads() > 0 ? properties.getWorkerThreads() : LoopResources.DEFAULT_IO_WORKER_COUNT,
+                true));
+        return factory;
+    }
+
+    @Bean
+    public TransportOptions transportOptions(TransportProperties properties, ReactorResourceFactory reactorResourceFactory) {
+        return new TransportOptions(properties, Transport.resolve(properties.isPreferNative()),
+                reactorResourceFactory.getLoopResources());
+    }
+
+    @Bean
+    public NettyServerCustomizer transportServerCustomizer(TransportOptions transportOptions) {
+        return transportOptions::apply;
+    }
+
+    @Bean
+    public HttpClientCustomizer transportHttpClientCustomizer(TransportOptions transportOptions) {
+        return transportOptions::apply;
+    }
+
+    @Bean
+    @ConditionalOnExpression("${gateway.transport.reuse-port:false} and ${gateway.transport.acceptors:1} > 1")
+    public ReusePortAcceptors reusePortAcceptors(TransportProperties properties, TransportOptions transportOptions,
+                                                 ObjectProvider<HttpHandler> httpHandler,
+                                                 ObjectProvider<NettyReactiveWebServerFactory> serverFactory) {
+        // Without epoll the first socket has no SO_REUSEPORT, binding more would fail
+        return new ReusePortAcceptors(transportOptions.isReusePort() ? properties.getAcceptors() : 1,
+                httpHandler, serverFactory);
+    }
+
+    @Bean
+    public ApplicationListener<ReactiveWebServerInitializedEvent> transportReport(TransportOptions transportOptions) {
+        return event -> {
+            if (event.getApplicationContext().getServerNamespace() == null) {
+                log.info("Netty on port {}: {}", event.getWebServer().getPort(), transportOptions.describe());
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package com.springcloud.demo.apigateway.transport;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.EpollChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Socket settings of {@link TransportProperties}, applied the same way to the server, its extra
+ * acceptors and the proxy client. Options a transport does not know are left out rather than
+ * logged as unsupported on every channel.
+ */
+public class TransportOptions {
+
+    private final TransportProperties properties;
+    private final Transport transport;
+    private final LoopResources loops;
+    private final ByteBufAllocator allocator;
+
+    public TransportOptions(TransportProperties properties, Transport transport, LoopResources loops) {
+        this.properties = properties;
+        this.transport = transport;
+        this.loops = loops;
+        this.allocator = properties.isDirectBuffers() ? new PooledByteBufAllocator(true) : null;
+    }
+
+    public Transport transport() {
+        return transport;
+    }
+
+    public boolean isReusePort() {
+        return properties.isReusePort() && transport == Transport.EPOLL;
+    }
+
+    public HttpServer apply(HttpServer server) {
+        HttpServer configured = server.runOn(loops, transport.isNative())
+                .childOption(ChannelOption.TCP_NODELAY, properties.isTcpNoDelay())
+                .childOption(ChannelOption.SO_KEEPALIVE, properties.isKeepAlive());
+
+        if (isReusePort()) {
+            configured = configured.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+        if (properties.isKeepAlive() && transport == Transport.EPOLL) {
+            configured = configured
+                    .childOption(EpollChannelOption.TCP_KEEPIDLE, (int) properties.getKeepAliveIdle().toSeconds())
+                    .childOption(EpollChannelOption.TCP_KEEPINTVL, (int) properties.getKeepAliveInterval().toSeconds())
+                    .childOption(EpollChannelOption.TCP_KEEPCNT, properties.getKeepAliveCount());
+        }
+        if (allocator != null) {
+            configured = configured
+                    .option(ChannelOption.ALLOCATOR, allocator)
+                    .childOption(ChannelOption.ALLOCATOR, allocator);
+        }
+        return configured;
+    }
+
+    public HttpClient apply(HttpClient client) {
+        HttpClient configured = client.runOn(loops, transport.isNative())
+                .option(ChannelOption.TCP_NODELAY, properties.isTcpNoDelay())
+                .option(ChannelOption.SO_KEEPALIVE, properties.isKeepAlive());
+
+        if (properties.isKeepAlive() && transport == Transport.EPOLL) {
+            configured = configured
+                    .option(EpollChannelOption.TCP_KEEPIDLE, (int) properties.getKeepAliveIdle().toSeconds())
+                    .option(EpollChannelOption.TCP_KEEPINTVL, (int) properties.getKeepAliveInterval().toSeconds())
+                    .option(EpollChannelOption.TCP_KEEPCNT, properties.getKeepAliveCount());
+        }
+        if (allocator != null) {
+            configured = configured.option(ChannelOption.ALLOCATOR, allocator);
+        }
+        return configured;
+    }
+
+    public String describe() {
+        return String.format("%s transport, %s select and %s worker threads, SO_REUSEPORT %s with %d acceptors, "
+                        + "TCP_NODELAY %s, SO_KEEPALIVE %s, %s allocator",
+                transport,
+                threads(properties.getSelectThreads(), "shared"),
+                threads(properties.getWorkerThreads(), "default"),
+                isReusePort() ? "on" : "off",
+                isReusePort() ? Math.max(properties.getAcceptors(), 1) : 1,
+                properties.isTcpNoDelay() ? "on" : "off",
+                properties.isKeepAlive() ? "on" : "off",
+                allocator != null ? "pooled direct" : "default");
+    }
+
+    private static String threads(int count, String fallback) {
+        return count > 0 ? Integer.toString(count) : fallback;
+    }
+}
@@ -0,0 +1,35 @@
+package com.springcloud.demo.apigateway.transport;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.transport")
+public class TransportProperties {
+
+    // Off, the server and the proxy client keep the global Reactor Netty resources
+    private boolean enabled = false;
+
+    // io_uring when on the classpath and supported by the kernel, then epoll, false forces NIO
+    private boolean preferNative = true;
+
+    // Zero keeps the Reactor Netty default: workers also select, one worker per core
+    private int selectThreads = 0;
+    private int workerThreads = 0;
+
+    // SO_REUSEPORT is only set by epoll, each acceptor is a listening socket the kernel spreads connections over
+    private boolean reusePort = false;
+    private int acceptors = 1;
+
+    private boolean tcpNoDelay = true;
+    private boolean keepAlive = true;
+    // Only applied by epoll, other transports use the system defaults
+    private Duration keepAliveIdle = Duration.ofSeconds(60);
+    private Duration keepAliveInterval = Duration.ofSeconds(10);
+    private int keepAliveCount = 3;
+
+    // Pooled direct buffers instead of the Netty default allocator
+    private boolean directBuffers = true;
+}
@@ -0,0 +1,46 @@
+package com.springcloud.demo.apigateway.upload;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.WrappedByteBuf;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Request body buffer passed through to the upstream connection as received. Netty releases it once
+ * written, which is when its bytes stop counting against the {@link UploadMemory}.
+ */
+class AccountedByteBuf extends WrappedByteBuf {
+
+    private final Runnable onSettled;
+    private final AtomicBoolean settled = new AtomicBoolean();
+
+    AccountedByteBuf(ByteBuf buf, Runnable onSettled) {
+        super(buf);
+        this.onSettled = onSettled;
+    }
+
+    @Override
+    public boolean release() {
+        boolean released = super.release();
+        if (released) {
+            settle();
+        }
+        return released;
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        boolean released = super.release(decrement);
+        if (released) {
+            settle();
+        }
+        return released;
+    }
+
+    // Also called when the request ends, derived buffers are released without going through this one
+    void settle() {
+        if (settled.compareAndSet(false, true)) {
+            onSettled.run();
+        }
+    }
+}
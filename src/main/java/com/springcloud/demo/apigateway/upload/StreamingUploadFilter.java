@@ -0,0 +1,140 @@
+package com.springcloud.demo.apigateway.upload;
+
+import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Proxies upload bodies buffer by buffer, never holding a whole body. Bodies over the route limit
+ * are refused from their Content-Length before being read, or as soon as a chunked body passes it.
+ * Every buffer read counts against the {@link UploadMemory} until written upstream.
+ */
+@Component
+public class StreamingUploadFilter extends AbstractGatewayFilterFactory<StreamingUploadFilter.Config> {
+
+    // Set on streamed requests, their body cannot be read twice (e.g. to retry them)
+    public static final String STREAMING_ATTRIBUTE = StreamingUploadFilter.class.getName() + ".streaming";
+
+    private static final Set<HttpMethod> UPLOAD_METHODS = Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH);
+
+    private static final SimpleException PAYLOAD_TOO_LARGE = new SimpleException(
+            HttpStatus.PAYLOAD_TOO_LARGE.value(), "Request body too large");
+
+    private final UploadMemory uploadMemory;
+    private final MeterRegistry meterRegistry;
+
+    public StreamingUploadFilter(UploadMemory uploadMemory, MeterRegistry meterRegistry) {
+        super(StreamingUploadFilter.Config.class);
+        this.uploadMemory = uploadMemory;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+        private DataSize maxSize = DataSize.ofMegabytes(10);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        long maxBytes = config.getMaxSize().toBytes();
+
+        // Ahead of the filters listed on the route, so BudgetedRetryFilter sees the attribute
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!UPLOAD_METHODS.contains(request.getMethod())) {
+                return chain.filter(exchange);
+            }
+
+            if (request.getHeaders().getContentLength() > maxBytes) {
+                return Mono.error(rejected(exchange));
+            }
+
+            exchange.getAttributes().put(STREAMING_ATTRIBUTE, true);
+            UploadBody body = new UploadBody(exchange, request, maxBytes);
+            return chain.filter(exchange.mutate().request(body).build())
+                    .doFinally(signal -> body.settle());
+        }, 0);
+    }
+
+    private SimpleException rejected(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        meterRegistry.counter("gateway.upload.rejected", "route", route != null ? route.getId() : "unknown")
+                .increment();
+        return PAYLOAD_TOO_LARGE;
+    }
+
+    private class UploadBody extends ServerHttpRequestDecorator {
+
+        private final ServerWebExchange exchange;
+        private final long maxBytes;
+        private final AtomicLong received = new AtomicLong();
+        private final Set<AccountedByteBuf> outstanding = ConcurrentHashMap.newKeySet();
+
+        UploadBody(ServerWebExchange exchange, ServerHttpRequest delegate, long maxBytes) {
+            super(delegate);
+            this.exchange = exchange;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            // One buffer at a time, the next one is only read once this one is accounted for
+            return super.getBody().concatMap(buffer -> {
+                int bytes = buffer.readableByteCount();
+                if (received.addAndGet(bytes) > maxBytes) {
+                    DataBufferUtils.release(buffer);
+                    return Mono.<DataBuffer>error(rejected(exchange));
+                }
+                return uploadMemory.acquire(bytes)
+                        .then(Mono.fromCallable(() -> account(buffer, bytes)))
+                        .doOnCancel(() -> DataBufferUtils.release(buffer));
+            }, 1);
+        }
+
+        private DataBuffer account(DataBuffer buffer, int bytes) {
+            if (!(buffer instanceof NettyDataBuffer nettyBuffer)) {
+                // Copied by the routing filter anyway, nothing to follow once handed over
+                uploadMemory.release(bytes);
+                return buffer;
+            }
+
+            AccountedByteBuf[] accounted = {null};
+            ByteBuf nativeBuffer = nettyBuffer.getNativeBuffer();
+            accounted[0] = new AccountedByteBuf(nativeBuffer, () -> {
+                outstanding.remove(accounted[0]);
+                uploadMemory.release(bytes);
+            });
+            outstanding.add(accounted[0]);
+            return nettyBuffer.factory().wrap(accounted[0]);
+        }
+
+        // Buffers netty did not release through their wrapper stop counting once the request is over
+        void settle() {
+            outstanding.forEach(AccountedByteBuf::settle);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.springcloud.demo.apigateway.upload;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(UploadProperties.class)
+public class UploadConfig {
+
+    @Bean
+    public UploadMemory uploadMemory(UploadProperties properties, MeterRegistry meterRegistry) {
+        return new UploadMemory(properties.getMaxInFlight().toBytes(), meterRegistry);
+    }
+}
@@ -0,0 +1,132 @@
+package com.springcloud.demo.apigateway.upload;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Bytes of upload bodies held by the gateway, bounded by a global cap. Buffers that do not fit wait
+ * in arrival order, and their body is not read any further meanwhile, so the clients are slowed down
+ * by TCP flow control instead of the heap growing.
+ */
+public class UploadMemory {
+
+    private final long maxBytes;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final Counter waits;
+
+    private long usedBytes;
+    private long peakBytes;
+
+    public UploadMemory(long maxBytes, MeterRegistry meterRegistry) {
+        this.maxBytes = maxBytes;
+        this.waits = meterRegistry.counter("gateway.upload.backpressure_waits");
+
+        Gauge.builder("gateway.upload.in_flight", this, UploadMemory::usedBytes).baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("gateway.upload.in_flight_peak", this, UploadMemory::peakBytes).baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("gateway.upload.waiting", this, UploadMemory::waiting).register(meterRegistry);
+    }
+
+    /**
+     * Completes once the bytes are accounted for, they are then owed back through {@link #release(long)}.
+     */
+    public Mono<Void> acquire(long bytes) {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(bytes, sink);
+            sink.onCancel(() -> cancel(waiter));
+
+            boolean granted;
+            synchronized (this) {
+                if (waiter.cancelled) {
+                    return;
+                }
+                granted = waiters.isEmpty() && fits(bytes);
+                if (granted) {
+                    grant(waiter);
+                } else {
+                    waiters.addLast(waiter);
+                }
+            }
+
+            if (granted) {
+                sink.success();
+            } else {
+                waits.increment();
+            }
+        });
+    }
+
+    public void release(long bytes) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            usedBytes -= bytes;
+            while (!waiters.isEmpty() && fits(waiters.peekFirst().bytes)) {
+                Waiter waiter = waiters.pollFirst();
+                grant(waiter);
+                granted.add(waiter);
+            }
+        }
+        // Outside the lock, completing a waiter forwards its buffer right away
+        granted.forEach(waiter -> waiter.sink.success());
+    }
+
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long peakBytes() {
+        return peakBytes;
+    }
+
+    public synchronized int waiting() {
+        return waiters.size();
+    }
+
+    // A single buffer bigger than the cap still goes through once nothing else is held
+    private boolean fits(long bytes) {
+        return usedBytes + bytes <= maxBytes || usedBytes == 0;
+    }
+
+    private void grant(Waiter waiter) {
+        waiter.granted = true;
+        usedBytes += waiter.bytes;
+        peakBytes = Math.max(peakBytes, usedBytes);
+    }
+
+    private void cancel(Waiter waiter) {
+        boolean granted;
+        synchronized (this) {
+            waiter.cancelled = true;
+            waiters.remove(waiter);
+            granted = waiter.granted;
+        }
+        // Granted while the subscriber went away, nobody else will give the bytes back
+        if (granted) {
+            release(waiter.bytes);
+        }
+    }
+
+    private static final class Waiter {
+
+        private final long bytes;
+        private final MonoSink<Void> sink;
+
+        // Guarded by the UploadMemory lock
+        private boolean granted;
+        private boolean cancelled;
+
+        private Waiter(long bytes, MonoSink<Void> sink) {
+            this.bytes = bytes;
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.springcloud.demo.apigateway.upload;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.upload")
+public class UploadProperties {
+
+    // Request body bytes read but not yet written upstream, across every route using StreamingUploadFilter.
+    // Past it, reading the bodies pauses until the upstream connections catch up
+    private DataSize maxInFlight = DataSize.ofMegabytes(256);
+}
@@ -0,0 +1,220 @@
+package com.springcloud.demo.apigateway.cache;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class ImageCacheTestIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void smallImageIsServedFromMemory() throws InterruptedException {
+        String uri = "/rooms/small.png";
+        byte[] image = image(512);
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "image/png")
+                        .withHeader("Cache-Control", "public, max-age=60")
+                        .withBody(image)));
+        double hits = requests("hit");
+
+        assertArrayEquals(image, fetchAndStore(uri));
+        assertArrayEquals(image, fetch(uri));
+
+        verify(1, getRequestedFor(urlEqualTo(uri)));
+        assertEquals(hits + 1, requests("hit"));
+    }
+
+    @Test
+    void largeImageIsServedFromDisk() throws InterruptedException {
+        String uri = "/receipts/large.jpg";
+        byte[] image = image(200 * 1024);
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "image/jpeg")
+                        .withHeader("Cache-Control", "max-age=60")
+                        .withBody(image)));
+        double diskEntries = diskEntries();
+
+        assertArrayEquals(image, fetchAndStore(uri));
+        assertArrayEquals(image, fetch(uri));
+
+        assertEquals(diskEntries + 1, diskEntries());
+
+        verify(1, getRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void staleImageIsRevalidatedWithEtag() throws InterruptedException {
+        String uri = "/rooms/revalidated.png";
+        byte[] image = image(600);
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "image/png")
+                        .withHeader("Cache-Control", "no-cache")
+                        .withHeader("ETag", "\"v1\"")
+                        .withBody(image)));
+        stubFor(get(urlEqualTo(uri))
+                .withHeader("If-None-Match", equalTo("\"v1\""))
+                .willReturn(aResponse()
+                        .withStatus(304)
+                        .withHeader("ETag", "\"v1\"")));
+        double revalidated = requests("revalidated");
+
+        assertArrayEquals(image, fetchAndStore(uri));
+        assertArrayEquals(image, fetch(uri));
+
+        verify(1, getRequestedFor(urlEqualTo(uri)).withHeader("If-None-Match", equalTo("\"v1\"")));
+        assertEquals(revalidated + 1, requests("revalidated"));
+    }
+
+    @Test
+    void noStoreImageIsNotCached() {
+        String uri = "/rooms/private.png";
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "image/png")
+                        .withHeader("Cache-Control", "no-store")
+                        .withBody(image(100))));
+
+        fetch(uri);
+        fetch(uri);
+
+        verify(2, getRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void identityBodyIsRequestedWhateverTheClientAccepts() throws InterruptedException {
+        String uri = "/rooms/encoded.png";
+        byte[] image = image(700);
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "image/png")
+                        .withHeader("Cache-Control", "max-age=60")
+                        .withBody(image)));
+        double entries = entries();
+
+        byte[] body = webTestClient.get()
+                .uri(uri)
+                .header("Accept-Encoding", "gzip")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().doesNotExist("Content-Encoding")
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        awaitStored(entries);
+
+        assertArrayEquals(image, body);
+        assertArrayEquals(image, fetch(uri));
+        verify(1, getRequestedFor(urlEqualTo(uri)).withHeader("Accept-Encoding", equalTo("identity")));
+    }
+
+    @Test
+    void encodedBodyIsNotCached() {
+        String uri = "/rooms/gzip.png";
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "image/png")
+                        .withHeader("Content-Encoding", "gzip")
+                        .withHeader("Cache-Control", "max-age=60")
+                        .withBody(image(100))));
+
+        fetch(uri);
+        fetch(uri);
+
+        verify(2, getRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void onlyCacheFilesAreDeletedOnStartup(@TempDir Path directory) throws IOException {
+        Path other = Files.writeString(directory.resolve("other.txt"), "kept");
+        Path previousRun = Files.write(directory.resolve(UUID.randomUUID() + ".bin"), image(10));
+        ImageCacheProperties properties = new ImageCacheProperties();
+        properties.setDiskDirectory(directory);
+
+        new ImageCache(properties, new SimpleMeterRegistry());
+
+        assertTrue(Files.exists(other));
+        assertFalse(Files.exists(previousRun));
+    }
+
+    private byte[] fetchAndStore(String uri) throws InterruptedException {
+        double entries = entries();
+        byte[] body = fetch(uri);
+        awaitStored(entries);
+        return body;
+    }
+
+    // The entry is stored off the event loop once the body went through
+    private void awaitStored(double entries) throws InterruptedException {
+        for (int i = 0; i < 50 && entries() == entries; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    private byte[] fetch(String uri) {
+        return webTestClient.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("gateway.image_cache.requests").tag("result", result).counter().count();
+    }
+
+    private double entries() {
+        return meterRegistry.get("gateway.image_cache.entries").gauges().stream().mapToDouble(Gauge::value).sum();
+    }
+
+    private double diskEntries() {
+        return meterRegistry.get("gateway.image_cache.entries").tag("tier", "disk").gauge().value();
+    }
+
+    private static byte[] image(int size) {
+        byte[] image = new byte[size];
+        new Random(size).nextBytes(image);
+        return image;
+    }
+}
@@ -0,0 +1,211 @@
+package com.springcloud.demo.apigateway.cache;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class ImageConditionalTestIT {
+
+    private static final String LAST_MODIFIED = "Tue, 15 Oct 2024 10:00:00 GMT";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void computedEtagAnswersIfNoneMatchWithoutBody() throws InterruptedException {
+        String uri = "/rooms/etag.png";
+        byte[] image = stubImage(uri, 800);
+
+        fetchAndStore(uri);
+        EntityExchangeResult<byte[]> cached = fetch(uri, headers -> {});
+        String etag = cached.getResponseHeaders().getETag();
+        double upstreamSaved = bytesSaved("upstream");
+        double clientSaved = bytesSaved("client");
+        EntityExchangeResult<byte[]> revalidated = fetch(uri, headers -> headers.setIfNoneMatch(etag));
+
+        assertArrayEquals(image, cached.getResponseBody());
+        assertTrue(etag.startsWith("\""));
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getStatus());
+        assertNull(revalidated.getResponseBody());
+        verify(1, getRequestedFor(urlEqualTo(uri)));
+        assertEquals(upstreamSaved + 800, bytesSaved("upstream"));
+        assertEquals(clientSaved + 800, bytesSaved("client"));
+    }
+
+    @Test
+    void weakUpstreamEtagIsReplacedByAStrongOne() throws InterruptedException {
+        String uri = "/rooms/weak-etag.png";
+        byte[] image = new byte[500];
+        new Random(500).nextBytes(image);
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "image/png")
+                        .withHeader("Cache-Control", "max-age=60")
+                        .withHeader("ETag", "W/\"v1\"")
+                        .withBody(image)));
+
+        fetchAndStore(uri);
+        EntityExchangeResult<byte[]> cached = fetch(uri, headers -> {});
+        String etag = cached.getResponseHeaders().getETag();
+        EntityExchangeResult<byte[]> range = fetch(uri, headers -> {
+            headers.set(HttpHeaders.RANGE, "bytes=0-9");
+            headers.set(HttpHeaders.IF_RANGE, etag);
+        });
+
+        assertTrue(etag.startsWith("\""));
+        assertEquals(HttpStatus.PARTIAL_CONTENT, range.getStatus());
+        assertArrayEquals(Arrays.copyOfRange(image, 0, 10), range.getResponseBody());
+    }
+
+    @Test
+    void ifModifiedSinceIsAnsweredFromCache() throws InterruptedException {
+        String uri = "/receipts/modified.png";
+        stubImage(uri, 800);
+
+        fetchAndStore(uri);
+        EntityExchangeResult<byte[]> result = fetch(uri, headers -> headers.set(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, result.getStatus());
+        assertNull(result.getResponseBody());
+        verify(1, getRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void singleRangeIsServedFromMemory() throws InterruptedException {
+        String uri = "/rooms/range.png";
+        byte[] image = stubImage(uri, 900);
+
+        fetchAndStore(uri);
+        double upstreamSaved = bytesSaved("upstream");
+        double clientSaved = bytesSaved("client");
+        EntityExchangeResult<byte[]> result = fetch(uri, headers -> headers.set(HttpHeaders.RANGE, "bytes=100-199"));
+
+        assertEquals(upstreamSaved + 900, bytesSaved("upstream"));
+        assertEquals(clientSaved + 800, bytesSaved("client"));
+        assertEquals(HttpStatus.PARTIAL_CONTENT, result.getStatus());
+        assertEquals("bytes 100-199/900", result.getResponseHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(100, result.getResponseHeaders().getContentLength());
+        assertArrayEquals(Arrays.copyOfRange(image, 100, 200), result.getResponseBody());
+        verify(1, getRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void suffixRangeIsServedFromDisk() throws InterruptedException {
+        String uri = "/rooms/range-large.jpg";
+        byte[] image = stubImage(uri, 100 * 1024);
+
+        fetchAndStore(uri);
+        EntityExchangeResult<byte[]> result = fetch(uri, headers -> headers.set(HttpHeaders.RANGE, "bytes=-1024"));
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, result.getStatus());
+        assertEquals(1024, result.getResponseBody().length);
+        assertArrayEquals(Arrays.copyOfRange(image, image.length - 1024, image.length), result.getResponseBody());
+    }
+
+    @Test
+    void multipleRangesAreServedAsMultipart() throws InterruptedException {
+        String uri = "/receipts/multi.png";
+        stubImage(uri, 1000);
+
+        fetchAndStore(uri);
+        EntityExchangeResult<byte[]> result = fetch(uri, headers -> headers.set(HttpHeaders.RANGE, "bytes=0-9,500-509"));
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, result.getStatus());
+        assertTrue(result.getResponseHeaders().getContentType().toString().startsWith("multipart/byteranges"));
+        String body = new String(result.getResponseBody(), StandardCharsets.ISO_8859_1);
+        assertTrue(body.contains("Content-Range: bytes 0-9/1000"));
+        assertTrue(body.contains("Content-Range: bytes 500-509/1000"));
+        assertTrue(result.getResponseBody().length < 1000);
+    }
+
+    @Test
+    void unsatisfiableRangeIsRejected() throws InterruptedException {
+        String uri = "/rooms/unsatisfiable.png";
+        stubImage(uri, 300);
+
+        fetchAndStore(uri);
+        EntityExchangeResult<byte[]> result = fetch(uri, headers -> headers.set(HttpHeaders.RANGE, "bytes=5000-"));
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, result.getStatus());
+        assertEquals("bytes */300", result.getResponseHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void mismatchedIfRangeSendsWholeImage() throws InterruptedException {
+        String uri = "/rooms/if-range.png";
+        byte[] image = stubImage(uri, 400);
+
+        fetchAndStore(uri);
+        EntityExchangeResult<byte[]> result = fetch(uri, headers -> {
+            headers.set(HttpHeaders.RANGE, "bytes=0-9");
+            headers.set(HttpHeaders.IF_RANGE, "\"other\"");
+        });
+
+        assertEquals(HttpStatus.OK, result.getStatus());
+        assertArrayEquals(image, result.getResponseBody());
+    }
+
+    private byte[] stubImage(String uri, int size) {
+        byte[] image = new byte[size];
+        new Random(size).nextBytes(image);
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "image/png")
+                        .withHeader("Cache-Control", "max-age=60")
+                        .withHeader("Last-Modified", LAST_MODIFIED)
+                        .withBody(image)));
+        return image;
+    }
+
+    private double bytesSaved(String link) {
+        return meterRegistry.get("gateway.image_cache.bytes_saved").tag("link", link).counter().count();
+    }
+
+    // The entry is stored off the event loop once the body went through
+    private void fetchAndStore(String uri) throws InterruptedException {
+        double entries = entries();
+        fetch(uri, headers -> {});
+        for (int i = 0; i < 50 && entries() == entries; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    private double entries() {
+        return meterRegistry.get("gateway.image_cache.entries").gauges().stream().mapToDouble(Gauge::value).sum();
+    }
+
+    private EntityExchangeResult<byte[]> fetch(String uri, Consumer<HttpHeaders> headers) {
+        return webTestClient.get()
+                .uri(uri)
+                .headers(headers)
+                .exchange()
+                .expectBody(byte[].class)
+                .returnResult();
+    }
+}
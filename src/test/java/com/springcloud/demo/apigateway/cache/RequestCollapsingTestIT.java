@@ -0,0 +1,217 @@
+package com.springcloud.demo.apigateway.cache;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class RequestCollapsingTestIT {
+
+    private static final int CONCURRENT_REQUESTS = 8;
+
+    // Past the 1KB min-size of CompressionFilter on the route
+    private static final String ROOMS = IntStream.range(0, 100)
+            .mapToObj(i -> "{\"id\":" + i + ",\"name\":\"Sala " + i + "\"}")
+            .collect(Collectors.joining(",", "[", "]"));
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        given(userClient.findByEmail(anyString())).willAnswer(invocation -> Mono.just(UserDTO.builder()
+                .id(UUID.nameUUIDFromBytes(invocation.getArgument(0, String.class).getBytes()))
+                .email(invocation.getArgument(0))
+                .build()));
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneUpstreamCall() throws Exception {
+        String uri = "/api/rooms/" + UUID.randomUUID();
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"name\":\"Sala 1\"}")
+                        .withFixedDelay(500)));
+        double collapsed = requests("collapsed");
+
+        List<String> bodies = fetchConcurrently(uri, "collapsed@gmail.com");
+
+        verify(1, getRequestedFor(urlEqualTo(uri)));
+        bodies.forEach(body -> assertEquals("{\"name\":\"Sala 1\"}", body));
+        assertEquals(collapsed + CONCURRENT_REQUESTS - 1, requests("collapsed"));
+    }
+
+    @Test
+    void requestsOfOtherUsersAreNotCollapsed() throws Exception {
+        String uri = "/api/rooms/" + UUID.randomUUID();
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{}")
+                        .withFixedDelay(300)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> fetch(uri, "one@gmail.com"), executor);
+            CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> fetch(uri, "two@gmail.com"), executor);
+            CompletableFuture.allOf(first, second).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(2, getRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void bodiesOverTheLimitAreNotReplayed() throws Exception {
+        String uri = "/api/rooms/" + UUID.randomUUID();
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody(new byte[300 * 1024])
+                        .withFixedDelay(500)));
+        double fallback = requests("fallback");
+
+        fetchConcurrently(uri, "large@gmail.com");
+
+        verify(CONCURRENT_REQUESTS, getRequestedFor(urlEqualTo(uri)));
+        assertTrue(requests("fallback") > fallback);
+    }
+
+    @Test
+    void compressedResponsesAreReplayedDecodable() throws Exception {
+        String uri = "/api/rooms/" + UUID.randomUUID();
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(ROOMS)
+                        .withFixedDelay(500)));
+        double collapsed = requests("collapsed");
+
+        List<String> bodies = fetchConcurrently(() -> fetchGzip(uri, "gzip@gmail.com"));
+
+        verify(1, getRequestedFor(urlEqualTo(uri)));
+        bodies.forEach(body -> assertEquals(ROOMS, body));
+        assertEquals(collapsed + CONCURRENT_REQUESTS - 1, requests("collapsed"));
+    }
+
+    private List<String> fetchConcurrently(String uri, String email) throws Exception {
+        return fetchConcurrently(() -> fetch(uri, email));
+    }
+
+    private List<String> fetchConcurrently(Supplier<String> fetch) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        try {
+            List<CompletableFuture<String>> responses = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                responses.add(CompletableFuture.supplyAsync(fetch, executor));
+            }
+
+            List<String> bodies = new ArrayList<>();
+            for (CompletableFuture<String> response : responses) {
+                bodies.add(response.get());
+            }
+            return bodies;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private String fetch(String uri, String email) {
+        return webTestClient.mutate()
+                .responseTimeout(Duration.ofSeconds(10))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(1024 * 1024))
+                .build()
+                .get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken(email))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    // Decoded here, the client of WebTestClient does not
+    private String fetchGzip(String uri, String email) {
+        EntityExchangeResult<byte[]> result = webTestClient.mutate()
+                .responseTimeout(Duration.ofSeconds(10))
+                .build()
+                .get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken(email))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectBody(byte[].class)
+                .returnResult();
+        try (GZIPInputStream decoder = new GZIPInputStream(new ByteArrayInputStream(result.getResponseBody()))) {
+            return new String(decoder.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private double requests(String result) {
+        return meterRegistry.find("gateway.request_collapsing.requests")
+                .tag("route", "rooms-any-role")
+                .tag("result", result)
+                .counters()
+                .stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+}
@@ -0,0 +1,209 @@
+package com.springcloud.demo.apigateway.cache;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.client.users.dto.UserRoleDTO;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class ResponseCacheTestIT {
+
+    // Past the 1KB min-size of CompressionFilter on the route
+    private static final String ROOMS = IntStream.range(0, 100)
+            .mapToObj(i -> "{\"id\":" + i + ",\"name\":\"Sala " + i + "\"}")
+            .collect(Collectors.joining(",", "[", "]"));
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        given(userClient.findByEmail(anyString())).willAnswer(invocation -> Mono.just(UserDTO.builder()
+                .id(UUID.nameUUIDFromBytes(invocation.getArgument(0, String.class).getBytes()))
+                .email(invocation.getArgument(0))
+                .roles(List.of(UserRoleDTO.builder().role("OWNER").build()))
+                .build()));
+    }
+
+    @Test
+    void sameUserIsServedFromCache() {
+        String uri = "/api/rooms?page=1";
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"name\":\"Sala 1\"}]")));
+        double hits = requests("hit");
+
+        String first = fetch(uri, "cached@gmail.com");
+        String second = fetch(uri, "cached@gmail.com");
+
+        assertEquals(first, second);
+        verify(1, getRequestedFor(urlEqualTo(uri)));
+        assertEquals(hits + 1, requests("hit"));
+    }
+
+    @Test
+    void otherUsersDoNotShareEntries() {
+        String uri = "/api/asks?page=1";
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[]")));
+
+        fetch(uri, "first@gmail.com");
+        fetch(uri, "second@gmail.com");
+
+        verify(2, getRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void errorResponsesAreNotCached() {
+        String uri = "/api/bookings/broken";
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(500)));
+
+        for (int i = 0; i < 2; i++) {
+            webTestClient.get()
+                    .uri(uri)
+                    .header("Authorization", "Bearer " + jwtUtils.generateToken("errors@gmail.com"))
+                    .exchange()
+                    .expectStatus()
+                    .is5xxServerError();
+        }
+
+        verify(2, getRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void successfulWriteInvalidatesResourcePrefix() {
+        String uri = "/api/rooms/invalidated";
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{}")));
+        stubFor(put(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(204)));
+
+        fetch(uri, "writer@gmail.com");
+        fetch(uri, "writer@gmail.com");
+        webTestClient.put()
+                .uri(uri)
+                .bodyValue(Map.of("name", "Sala 2"))
+                .header("Authorization", "Bearer " + jwtUtils.generateToken("writer@gmail.com"))
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+        fetch(uri, "writer@gmail.com");
+
+        verify(2, getRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void compressedResponsesAreCachedAsIdentity() throws IOException {
+        String uri = "/api/rooms?page=compressed";
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("ETag", "\"rooms-compressed\"")
+                        .withBody(ROOMS)));
+        double hits = requests("hit");
+
+        EntityExchangeResult<byte[]> first = fetchGzip(uri, "gzip@gmail.com");
+        EntityExchangeResult<byte[]> second = fetchGzip(uri, "gzip@gmail.com");
+
+        assertEquals(hits + 1, requests("hit"));
+        verify(1, getRequestedFor(urlEqualTo(uri)));
+        for (EntityExchangeResult<byte[]> result : List.of(first, second)) {
+            assertEquals("gzip", result.getResponseHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            assertEquals(ROOMS, gunzip(result.getResponseBody()));
+        }
+        assertEquals(first.getResponseHeaders().getETag(), second.getResponseHeaders().getETag());
+        // Without Accept-Encoding the same entry is served as it was stored
+        assertEquals(ROOMS, fetch(uri, "gzip@gmail.com"));
+    }
+
+    private String fetch(String uri, String email) {
+        return webTestClient.get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken(email))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private EntityExchangeResult<byte[]> fetchGzip(String uri, String email) {
+        return webTestClient.get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken(email))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(byte[].class)
+                .returnResult();
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream decoder = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(decoder.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private double requests(String result) {
+        return meterRegistry.find("gateway.response_cache.requests")
+                .tag("route", "rooms-any-role")
+                .tag("result", result)
+                .counters()
+                .stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+}
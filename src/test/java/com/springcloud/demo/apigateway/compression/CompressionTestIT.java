@@ -0,0 +1,154 @@
+package com.springcloud.demo.apigateway.compression;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.client.users.dto.UserRoleDTO;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class CompressionTestIT {
+
+    private static final String ROOMS = IntStream.range(0, 100)
+            .mapToObj(i -> "{\"id\":" + i + ",\"name\":\"Sala " + i + "\",\"capacity\":4}")
+            .collect(Collectors.joining(",", "[", "]"));
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        given(userClient.findByEmail(anyString())).willAnswer(invocation -> Mono.just(UserDTO.builder()
+                .id(UUID.nameUUIDFromBytes(invocation.getArgument(0, String.class).getBytes()))
+                .email(invocation.getArgument(0))
+                .roles(List.of(UserRoleDTO.builder().role("CUSTOMER").build()))
+                .build()));
+    }
+
+    @Test
+    void gzipIsAppliedWhenAccepted() throws IOException {
+        stub("/api/asks/gzip", ROOMS, null);
+
+        EntityExchangeResult<byte[]> result = fetch("/api/asks/gzip", "gzip", "gzip@gmail.com");
+
+        HttpHeaders headers = result.getResponseHeaders();
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+        assertTrue(result.getResponseBody().length < ROOMS.length());
+        assertEquals(ROOMS, decode(new GZIPInputStream(new ByteArrayInputStream(result.getResponseBody()))));
+    }
+
+    @Test
+    void zstdIsPreferredWhenWeightedEqually() throws IOException {
+        stub("/api/asks/zstd", ROOMS, null);
+
+        EntityExchangeResult<byte[]> result = fetch("/api/asks/zstd", "gzip, zstd", "zstd@gmail.com");
+
+        assertEquals("zstd", result.getResponseHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(ROOMS, decode(new ZstdInputStream(new ByteArrayInputStream(result.getResponseBody()))));
+    }
+
+    @Test
+    void smallOrUnacceptedResponsesAreNotCompressed() {
+        stub("/api/asks/small", "[]", null);
+        stub("/api/asks/identity", ROOMS, null);
+
+        EntityExchangeResult<byte[]> small = fetch("/api/asks/small", "gzip", "small@gmail.com");
+        EntityExchangeResult<byte[]> identity = fetch("/api/asks/identity", "gzip;q=0", "identity@gmail.com");
+
+        assertNull(small.getResponseHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("[]", new String(small.getResponseBody(), StandardCharsets.UTF_8));
+        assertNull(identity.getResponseHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(ROOMS, new String(identity.getResponseBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void strongEtagReusesCompressedVariant() throws IOException {
+        stub("/api/bookings/variant", ROOMS, "\"rooms-v1\"");
+        double hits = precompressed("hit");
+
+        EntityExchangeResult<byte[]> first = fetch("/api/bookings/variant", "gzip", "first-variant@gmail.com");
+        EntityExchangeResult<byte[]> second = fetch("/api/bookings/variant", "gzip", "second-variant@gmail.com");
+
+        assertEquals(hits + 1, precompressed("hit"));
+        assertEquals("W/\"rooms-v1\"", second.getResponseHeaders().getETag());
+        assertArrayEquals(first.getResponseBody(), second.getResponseBody());
+        assertEquals(ROOMS, decode(new GZIPInputStream(new ByteArrayInputStream(second.getResponseBody()))));
+    }
+
+    private void stub(String uri, String body, String etag) {
+        var response = aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(body);
+        if (etag != null) {
+            response.withHeader("ETag", etag);
+        }
+        stubFor(get(urlEqualTo(uri)).willReturn(response));
+    }
+
+    private EntityExchangeResult<byte[]> fetch(String uri, String acceptEncoding, String email) {
+        return webTestClient.get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken(email))
+                .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(byte[].class)
+                .returnResult();
+    }
+
+    private String decode(InputStream decoder) throws IOException {
+        try (decoder) {
+            return new String(decoder.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private double precompressed(String result) {
+        Counter counter = meterRegistry.find("gateway.compression.precompressed.requests")
+                .tag("result", result)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
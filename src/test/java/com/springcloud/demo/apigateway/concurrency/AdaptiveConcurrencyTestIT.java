@@ -0,0 +1,186 @@
+package com.springcloud.demo.apigateway.concurrency;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.client.users.dto.UserRoleDTO;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class AdaptiveConcurrencyTestIT {
+
+    private static final int CONCURRENT_REQUESTS = 30;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ConcurrencyLimitProperties properties;
+
+    @BeforeEach
+    void setup() {
+        given(userClient.findByEmail(anyString())).willAnswer(invocation -> Mono.just(UserDTO.builder()
+                .id(UUID.nameUUIDFromBytes(invocation.getArgument(0, String.class).getBytes()))
+                .email(invocation.getArgument(0))
+                .roles(List.of(UserRoleDTO.builder().role("CUSTOMER").build()))
+                .build()));
+    }
+
+    @Test
+    void limitShrinksWhenServiceSlowsDown() {
+        stubFor(get(urlPathEqualTo("/api/asks/adaptive"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[]")));
+        for (int i = 0; i < 5; i++) {
+            fetch("/api/asks/adaptive?page=" + i);
+        }
+        double before = limit("asks-any-role");
+
+        stubFor(get(urlPathEqualTo("/api/asks/adaptive"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[]")
+                        .withFixedDelay(300)));
+        for (int i = 0; i < 6; i++) {
+            fetch("/api/asks/adaptive?slow=" + i);
+        }
+
+        assertTrue(limit("asks-any-role") < before);
+    }
+
+    @Test
+    void deadlineTimeoutsShrinkTheLimit() {
+        stubFor(get(urlPathEqualTo("/api/asks/timeout"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[]")
+                        .withFixedDelay(1000)));
+        double before = limit("asks-any-role");
+        double dropped = requests("asks-any-role", "dropped");
+
+        for (int i = 0; i < 3; i++) {
+            EntityExchangeResult<byte[]> result = webTestClient.get()
+                    .uri("/api/asks/timeout?page=" + i)
+                    .header("Authorization", "Bearer " + jwtUtils.generateToken("adaptive@gmail.com"))
+                    .header("X-Request-Deadline", "200")
+                    .exchange()
+                    .expectBody(byte[].class)
+                    .returnResult();
+            assertEquals(504, result.getStatus().value());
+        }
+
+        assertTrue(limit("asks-any-role") < before);
+        assertEquals(dropped + 3, requests("asks-any-role", "dropped"));
+    }
+
+    @Test
+    void requestsOverTheLimitAreRejectedRightAway() throws Exception {
+        stubFor(get(urlPathEqualTo("/api/bookings/saturated"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[]")
+                        .withFixedDelay(2000)));
+        double rejected = requests("bookings-any-role", "rejected");
+
+        List<EntityExchangeResult<byte[]>> results = fetchConcurrently("/api/bookings/saturated");
+
+        List<EntityExchangeResult<byte[]>> unavailable = results.stream()
+                .filter(result -> result.getStatus().value() == 503)
+                .toList();
+        assertFalse(unavailable.isEmpty());
+        assertTrue(unavailable.size() <= CONCURRENT_REQUESTS - properties.getMinLimit());
+        unavailable.forEach(result -> assertEquals("1", result.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER)));
+        assertEquals(rejected + unavailable.size(), requests("bookings-any-role", "rejected"));
+    }
+
+    private List<EntityExchangeResult<byte[]>> fetchConcurrently(String path) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        try {
+            List<CompletableFuture<EntityExchangeResult<byte[]>>> responses = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                String uri = path + "?page=" + i;
+                responses.add(CompletableFuture.supplyAsync(() -> exchange(uri), executor));
+            }
+
+            List<EntityExchangeResult<byte[]>> results = new ArrayList<>();
+            for (CompletableFuture<EntityExchangeResult<byte[]>> response : responses) {
+                results.add(response.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void fetch(String uri) {
+        assertEquals(200, exchange(uri).getStatus().value());
+    }
+
+    private EntityExchangeResult<byte[]> exchange(String uri) {
+        return webTestClient.mutate()
+                .responseTimeout(Duration.ofSeconds(10))
+                .build()
+                .get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken("adaptive@gmail.com"))
+                .exchange()
+                .expectBody(byte[].class)
+                .returnResult();
+    }
+
+    private double limit(String service) {
+        Gauge gauge = meterRegistry.find("gateway.concurrency_limit.limit").tag("service", service).gauge();
+        return gauge == null ? properties.getInitialLimit() : gauge.value();
+    }
+
+    private double requests(String service, String result) {
+        Counter counter = meterRegistry.find("gateway.concurrency_limit.requests")
+                .tag("service", service)
+                .tag("result", result)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,164 @@
+package com.springcloud.demo.apigateway.deadline;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+@SpringBootTest(properties = "gateway.deadline.timeouts.bookings-any-role=500ms")
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class DeadlineTestIT {
+
+    private static final String HEADER = "X-Request-Deadline";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        given(userClient.findByEmail(anyString())).willReturn(user());
+    }
+
+    @Test
+    void remainingTimeIsSentDownstream() {
+        String uri = "/api/bookings/deadline-header";
+        stubOk(uri, 0);
+
+        send(uri).expectStatus().isOk();
+
+        long remaining = sentDeadline(uri);
+        assertTrue(remaining > 0 && remaining <= 500, remaining + "ms sent");
+    }
+
+    @Test
+    void userLookupIsSubtractedFromDownstreamBudget() {
+        String uri = "/api/bookings/deadline-lookup";
+        stubOk(uri, 0);
+        given(userClient.findByEmail(anyString())).willReturn(user().delayElement(Duration.ofMillis(200)));
+
+        send(uri).expectStatus().isOk();
+
+        long remaining = sentDeadline(uri);
+        assertTrue(remaining > 0 && remaining <= 300, remaining + "ms sent");
+    }
+
+    @Test
+    void slowServiceIsCancelledAtDeadline() {
+        String uri = "/api/bookings/deadline-slow";
+        stubOk(uri, 2000);
+        double exceeded = counter("timeout");
+
+        long start = System.nanoTime();
+        send(uri).expectStatus().isEqualTo(504);
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1500);
+        assertEquals(exceeded + 1, counter("timeout"));
+    }
+
+    @Test
+    void responseBodyOutlastsDeadline() {
+        String uri = "/api/bookings/deadline-streamed";
+        String body = "[" + "{\"id\":1},".repeat(999) + "{\"id\":1}]";
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(body)
+                        .withChunkedDribbleDelay(10, 1500)));
+        double exceeded = counter("timeout");
+
+        String received = send(uri)
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertEquals(body, received);
+        assertEquals(exceeded, counter("timeout"));
+    }
+
+    @Test
+    void requestPastCallerDeadlineIsNotProxied() {
+        String uri = "/api/bookings/deadline-expired";
+        stubOk(uri, 0);
+        double exceeded = counter("early");
+
+        webTestClient.get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken("deadline@gmail.com"))
+                .header(HEADER, "0")
+                .exchange()
+                .expectStatus().isEqualTo(504);
+
+        verify(0, getRequestedFor(urlEqualTo(uri)));
+        assertEquals(exceeded + 1, counter("early"));
+    }
+
+    private WebTestClient.ResponseSpec send(String uri) {
+        return webTestClient.get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken("deadline@gmail.com"))
+                .exchange();
+    }
+
+    private void stubOk(String uri, int delay) {
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[]")
+                        .withFixedDelay(delay)));
+    }
+
+    private long sentDeadline(String uri) {
+        List<LoggedRequest> requests = findAll(getRequestedFor(urlEqualTo(uri)));
+        assertEquals(1, requests.size());
+        return Long.parseLong(requests.get(0).getHeader(HEADER));
+    }
+
+    private Mono<UserDTO> user() {
+        return Mono.just(UserDTO.builder()
+                .id(UUID.randomUUID())
+                .email("deadline@gmail.com")
+                .build());
+    }
+
+    private double counter(String stage) {
+        Counter counter = meterRegistry.find("gateway.deadline.exceeded")
+                .tag("route", "bookings-any-role")
+                .tag("stage", stage)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,140 @@
+package com.springcloud.demo.apigateway.docs;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class OpenApiAggregationTestIT {
+
+    private static final List<String> SERVICES = List.of("auth", "users", "rooms", "asks", "bookings");
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setup() {
+        for (String service : SERVICES) {
+            // Every service defines its own ErrorResponse, rooms uses the same name for another shape
+            String errorSchema = service.equals("rooms")
+                    ? "{\"type\":\"object\",\"properties\":{\"code\":{\"type\":\"integer\"}}}"
+                    : "{\"type\":\"object\",\"properties\":{\"message\":{\"type\":\"string\"}}}";
+            stubFor(get(urlEqualTo("/api/" + service + "/v3/api-docs"))
+                    .willReturn(aResponse()
+                            .withStatus(200)
+                            .withHeader("Content-Type", "application/json")
+                            .withBody("""
+                                    {"openapi":"3.0.1","info":{"title":"%1$s","version":"1"},
+                                     "tags":[{"name":"%1$s"}],
+                                     "paths":{"/api/%1$s":{"get":{"responses":{"400":{"description":"error",
+                                       "content":{"application/json":{"schema":{"$ref":"#/components/schemas/ErrorResponse"}}}}}}},
+                                       "/health":{"get":{"responses":{"200":{"description":"ok"}}}}},
+                                     "components":{"schemas":{"ErrorResponse":%2$s}}}
+                                    """.formatted(service, errorSchema))));
+        }
+    }
+
+    @Test
+    void documentsAreMergedAndServedFromCache() throws Exception {
+        JsonNode merged = fetchJson();
+        fetchJson();
+
+        for (String service : SERVICES) {
+            assertTrue(merged.path("paths").has("/api/" + service));
+            assertTrue(merged.path("paths").has("/api/" + service + "/health"));
+            verify(lessThanOrExactly(1), getRequestedFor(urlEqualTo("/api/" + service + "/v3/api-docs")));
+        }
+        assertEquals(5, merged.path("tags").size());
+        assertTrue(merged.path("components").path("schemas").has("ErrorResponse"));
+        assertEquals("#/components/schemas/rooms.ErrorResponse", merged.path("paths").path("/api/rooms")
+                .path("get").path("responses").path("400").path("content").path("application/json")
+                .path("schema").path("$ref").asText());
+    }
+
+    @Test
+    void documentIsServedGzippedWithEtag() throws Exception {
+        EntityExchangeResult<byte[]> gzipped = webTestClient.get()
+                .uri("/v3/api-docs")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectBody(byte[].class)
+                .returnResult();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(gzipped.getResponseBody()))) {
+            assertTrue(objectMapper.readTree(gzip).path("paths").has("/api/rooms"));
+        }
+        String gzipEtag = gzipped.getResponseHeaders().getETag();
+
+        String etag = webTestClient.get()
+                .uri("/v3/api-docs")
+                .exchange()
+                .expectHeader()
+                .exists(HttpHeaders.ETAG)
+                .returnResult(byte[].class)
+                .getResponseHeaders()
+                .getETag();
+
+        assertNotEquals(etag, gzipEtag);
+
+        webTestClient.get()
+                .uri("/v3/api-docs")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+        webTestClient.get()
+                .uri("/v3/api-docs")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, gzipEtag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+
+        // A cached gzip body must not be revalidated as the identity one
+        webTestClient.get()
+                .uri("/v3/api-docs")
+                .header(HttpHeaders.IF_NONE_MATCH, gzipEtag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(HttpHeaders.CONTENT_ENCODING);
+    }
+
+    private JsonNode fetchJson() throws Exception {
+        byte[] body = webTestClient.get()
+                .uri("/v3/api-docs")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        return objectMapper.readTree(body);
+    }
+}
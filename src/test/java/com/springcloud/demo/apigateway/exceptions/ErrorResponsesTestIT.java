@@ -0,0 +1,67 @@
+package com.springcloud.demo.apigateway.exceptions;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class ErrorResponsesTestIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Test
+    void tokenRequired() {
+        webTestClient
+                .get()
+                .uri("/api/rooms")
+                .exchange()
+                .expectStatus()
+                .isUnauthorized()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .json("{\"message\":\"Token is required\",\"status\":401}", true);
+    }
+
+    @Test
+    void tokenNotValid() {
+        for (int i = 0; i < 2; i++) {
+            webTestClient
+                    .get()
+                    .uri("/api/rooms")
+                    .header("Authorization", "Bearer junk")
+                    .exchange()
+                    .expectStatus()
+                    .isUnauthorized()
+                    .expectHeader().contentLength(42)
+                    .expectBody()
+                    .json("{\"message\":\"Token not valid\",\"status\":401}", true);
+        }
+    }
+
+    @Test
+    void malformedAuthorizationHeader() {
+        webTestClient
+                .get()
+                .uri("/api/rooms")
+                .header("Authorization", "junk")
+                .exchange()
+                .expectStatus()
+                .isUnauthorized()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Token not valid");
+    }
+}
@@ -0,0 +1,143 @@
+package com.springcloud.demo.apigateway.http2;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWireMock(port = 9090)
+public class Http2TestIT {
+
+    // Only speaks HTTP/1.1, unlike WireMock which also accepts h2c
+    private static final HttpServer http1Backend = startHttp1Backend();
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static HttpServer startHttp1Backend() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", exchange -> {
+                byte[] response = "http1".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, response.length);
+                exchange.getResponseBody().write(response);
+                exchange.close();
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @AfterAll
+    static void stopHttp1Backend() {
+        http1Backend.stop(0);
+    }
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.discovery.client.simple.instances.h2c-ms[0].uri", () -> "http://localhost:9090");
+        registry.add("spring.cloud.discovery.client.simple.instances.http1-ms[0].uri",
+                () -> "http://localhost:" + http1Backend.getAddress().getPort());
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "h2c-backend");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> "lb://h2c-ms");
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/h2c/**");
+        registry.add("spring.cloud.gateway.routes[1].id", () -> "http1-backend");
+        registry.add("spring.cloud.gateway.routes[1].uri", () -> "lb://http1-ms");
+        registry.add("spring.cloud.gateway.routes[1].predicates[0]", () -> "Path=/api/http1/**");
+        registry.add("gateway.upstream-pool.services.h2c-ms.h2c", () -> "true");
+        registry.add("gateway.upstream-pool.services.http1-ms.h2c", () -> "true");
+    }
+
+    @Test
+    void h2cFromTheClientToTheBackend() {
+        stubFor(get(urlEqualTo("/api/h2c/rooms")).willReturn(aResponse()
+                .withStatus(200)
+                .withBody("[]")));
+
+        Response response = send(HttpProtocol.H2C, "/api/h2c/rooms");
+
+        assertEquals(200, response.status());
+        assertEquals("HTTP/2.0", response.version());
+        assertEquals("[]", response.body());
+        List<LoggedRequest> requests = findAll(getRequestedFor(urlEqualTo("/api/h2c/rooms")));
+        assertEquals(1, requests.size());
+        assertEquals("HTTP/2.0", requests.get(0).getProtocol());
+        assertEquals(0, fallbacks("h2c-ms"));
+    }
+
+    @Test
+    void http1ClientsAreStillServed() {
+        stubFor(get(urlEqualTo("/api/h2c/asks")).willReturn(aResponse()
+                .withStatus(200)
+                .withBody("[]")));
+
+        Response response = send(HttpProtocol.HTTP11, "/api/h2c/asks");
+
+        assertEquals(200, response.status());
+        assertEquals("HTTP/1.1", response.version());
+    }
+
+    @Test
+    void instanceWithoutH2cFallsBackToHttp1() {
+        // The first request finds out the instance does not speak h2c, it may fail
+        send(HttpProtocol.HTTP11, "/api/http1/bookings");
+        assertEquals(1, fallbacks("http1-ms"));
+
+        Response response = send(HttpProtocol.HTTP11, "/api/http1/bookings");
+
+        assertEquals(200, response.status());
+        assertEquals("http1", response.body());
+        assertEquals(1, fallbacks("http1-ms"));
+    }
+
+    private Response send(HttpProtocol protocol, String uri) {
+        return HttpClient.create()
+                .protocol(protocol)
+                .get()
+                .uri("http://localhost:" + port + uri)
+                .responseSingle((response, body) -> body.asString()
+                        .defaultIfEmpty("")
+                        .map(text -> new Response(response.status().code(), response.version().text(), text)))
+                .block(Duration.ofSeconds(10));
+    }
+
+    private double fallbacks(String service) {
+        Counter counter = meterRegistry.find("gateway.upstream.h2c.fallback").tag("service", service).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private record Response(int status, String version, String body) {
+    }
+}
@@ -0,0 +1,212 @@
+package com.springcloud.demo.apigateway.idempotency;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.client.users.dto.UserRoleDTO;
+import com.springcloud.demo.apigateway.retry.BudgetedRetryFilter;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class IdempotencyTestIT {
+
+    private static final int CONCURRENT_REQUESTS = 10;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private IdempotencyProperties properties;
+
+    @BeforeEach
+    void setup() {
+        given(userClient.findByEmail(anyString())).willAnswer(invocation -> Mono.just(UserDTO.builder()
+                .id(UUID.nameUUIDFromBytes(invocation.getArgument(0, String.class).getBytes()))
+                .email(invocation.getArgument(0))
+                .roles(List.of(UserRoleDTO.builder().role("CUSTOMER").build()))
+                .build()));
+    }
+
+    @Test
+    void retryGetsTheStoredResponse() {
+        String uri = "/api/bookings/" + UUID.randomUUID();
+        stubFor(post(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(201)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"id\":\"booking-1\"}")));
+        String key = UUID.randomUUID().toString();
+
+        send(uri, key, "retry@gmail.com")
+                .expectStatus().isCreated()
+                .expectHeader().doesNotExist(IdempotencyLookupFilter.REPLAYED_HEADER);
+        send(uri, key, "retry@gmail.com")
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(IdempotencyLookupFilter.REPLAYED_HEADER, "true")
+                .expectBody(String.class).isEqualTo("{\"id\":\"booking-1\"}");
+
+        verify(1, postRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForTheFirstRequest() throws Exception {
+        String uri = "/api/bookings/" + UUID.randomUUID();
+        stubFor(post(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(201)
+                        .withBody("{\"id\":\"booking-2\"}")
+                        .withFixedDelay(500)));
+        String key = UUID.randomUUID().toString();
+        double coalesced = requests("coalesced");
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        try {
+            List<CompletableFuture<String>> responses = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                responses.add(CompletableFuture.supplyAsync(() -> send(uri, key, "concurrent@gmail.com")
+                        .expectStatus().isCreated()
+                        .expectBody(String.class)
+                        .returnResult()
+                        .getResponseBody(), executor));
+            }
+            for (CompletableFuture<String> response : responses) {
+                assertEquals("{\"id\":\"booking-2\"}", response.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(1, postRequestedFor(urlEqualTo(uri)));
+        assertTrue(requests("coalesced") > coalesced);
+    }
+
+    @Test
+    void keysAreScopedToTheUser() {
+        String uri = "/api/bookings/" + UUID.randomUUID();
+        stubFor(post(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(201)));
+        String key = UUID.randomUUID().toString();
+
+        send(uri, key, "one@gmail.com").expectStatus().isCreated();
+        send(uri, key, "two@gmail.com").expectStatus().isCreated();
+
+        verify(2, postRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void serverErrorsAreNotStored() {
+        String uri = "/api/bookings/" + UUID.randomUUID();
+        stubFor(post(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(503)));
+        String key = UUID.randomUUID().toString();
+
+        send(uri, key, "failing@gmail.com").expectStatus().isEqualTo(503);
+        send(uri, key, "failing@gmail.com").expectStatus().isEqualTo(503);
+
+        verify(2, postRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void keyReusedWithADifferentBodyIsRejected() {
+        String uri = "/api/bookings/" + UUID.randomUUID();
+        stubFor(post(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(201)
+                        .withBody("{\"id\":\"booking-3\"}")));
+        String key = UUID.randomUUID().toString();
+        double mismatches = requests("mismatch");
+
+        send(uri, key, "reused@gmail.com", "room-1").expectStatus().isCreated();
+        send(uri, key, "reused@gmail.com", "room-2")
+                .expectStatus().isEqualTo(422)
+                .expectHeader().doesNotExist(IdempotencyLookupFilter.REPLAYED_HEADER);
+
+        verify(1, postRequestedFor(urlEqualTo(uri)));
+        assertEquals(mismatches + 1, requests("mismatch"));
+    }
+
+    @Test
+    void duplicateStopsWaitingForASlowFirstRequest() throws Exception {
+        String uri = "/api/bookings/" + UUID.randomUUID();
+        stubFor(post(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(201)
+                        .withFixedDelay(1500)));
+        String key = UUID.randomUUID().toString();
+        Duration waitTimeout = properties.getWaitTimeout();
+        properties.setWaitTimeout(Duration.ofMillis(200));
+
+        try {
+            CompletableFuture<Void> first = CompletableFuture.runAsync(() ->
+                    send(uri, key, "waiting@gmail.com").expectStatus().isCreated());
+            // Let the first request take the lead
+            Thread.sleep(300);
+
+            send(uri, key, "waiting@gmail.com").expectStatus().isEqualTo(409);
+            first.get();
+        } finally {
+            properties.setWaitTimeout(waitTimeout);
+        }
+
+        verify(1, postRequestedFor(urlEqualTo(uri)));
+    }
+
+    private WebTestClient.ResponseSpec send(String uri, String key, String email) {
+        return send(uri, key, email, "room-1");
+    }
+
+    private WebTestClient.ResponseSpec send(String uri, String key, String email, String roomId) {
+        return webTestClient.post()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken(email))
+                .header(BudgetedRetryFilter.IDEMPOTENCY_KEY_HEADER, key)
+                .bodyValue(Map.of("roomId", roomId))
+                .exchange();
+    }
+
+    private double requests(String result) {
+        Counter counter = meterRegistry.find("gateway.idempotency.requests")
+                .tag("route", "bookings-customers")
+                .tag("result", result)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,106 @@
+package com.springcloud.demo.apigateway.monitoring;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.mockito.BDDMockito.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class JfrEndpointTestIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @TempDir
+    Path dumpDir;
+
+    @AfterEach
+    void stopRecording() {
+        webTestClient.delete().uri("/actuator/jfr").exchange();
+    }
+
+    @Test
+    void recordsGatewayEvents() throws Exception {
+        String uri = "/api/rooms";
+        UserDTO userLogged = UserDTO.builder().id(UUID.randomUUID()).email("gonza@gmail.com").build();
+        given(userClient.findByEmail(anyString())).willReturn(Mono.just(userLogged));
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                )
+        );
+
+        webTestClient.post().uri("/actuator/jfr")
+                .bodyValue(Map.of())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.state").isEqualTo("RUNNING");
+
+        webTestClient.get().uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken("gonza@gmail.com"))
+                .exchange()
+                .expectStatus().isOk();
+
+        byte[] dump = webTestClient.mutate()
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(64 * 1024 * 1024))
+                .build()
+                .get().uri("/actuator/jfr")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        Path file = Files.write(dumpDir.resolve("gateway.jfr"), dump);
+        List<String> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> "rooms-any-role".equals(event.getString("routeId")))
+                .map(RecordedEvent::getEventType)
+                .map(type -> type.getName())
+                .toList();
+
+        assertTrue(events.contains("com.springcloud.demo.apigateway.JwtVerification"));
+        assertTrue(events.contains("com.springcloud.demo.apigateway.UserLookup"));
+        assertTrue(events.contains("com.springcloud.demo.apigateway.Authorization"));
+        assertTrue(events.contains("com.springcloud.demo.apigateway.UpstreamCall"));
+    }
+
+    @Test
+    void dumpWithoutRecordingIsNotFound() {
+        webTestClient.get().uri("/actuator/jfr")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
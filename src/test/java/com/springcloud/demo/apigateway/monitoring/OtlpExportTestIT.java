@@ -0,0 +1,132 @@
+package com.springcloud.demo.apigateway.monitoring;
+
+import com.springcloud.demo.apigateway.monitoring.tracing.GatewaySpan;
+import com.springcloud.demo.apigateway.monitoring.tracing.OtelTracingBackend;
+import com.springcloud.demo.apigateway.monitoring.tracing.TracingBackend;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "gateway.tracing.backend=otel",
+        "gateway.tracing.otlp.max-queue-size=32768",
+        "gateway.tracing.otlp.schedule-delay=100ms"
+})
+@ActiveProfiles("test")
+public class OtlpExportTestIT {
+
+    private static final double MIN_SPANS_PER_SECOND = 5_000;
+
+    private static final AtomicInteger exportRequests = new AtomicInteger();
+    private static final AtomicLong exportedBytes = new AtomicLong();
+    private static final HttpServer collector = startCollector();
+
+    @Autowired
+    private TracingBackend tracingBackend;
+
+    @Autowired
+    private OpenTelemetrySdk openTelemetry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void collectorProperties(DynamicPropertyRegistry registry) {
+        registry.add("gateway.tracing.otlp.endpoint",
+                () -> "http://localhost:" + collector.getAddress().getPort() + "/v1/traces");
+    }
+
+    @AfterAll
+    static void stopCollector() {
+        collector.stop(0);
+    }
+
+    @Test
+    void otelBackendIsSelected() {
+        assertInstanceOf(OtelTracingBackend.class, tracingBackend);
+    }
+
+    @Test
+    void propagatesW3CAndXRayHeaders() {
+        HttpHeaders incoming = new HttpHeaders();
+        incoming.set("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+
+        GatewaySpan span = tracingBackend.startSpan("Gateway", incoming);
+        Map<String, String> outgoing = new HashMap<>();
+        span.injectHeaders(outgoing::put);
+        span.end();
+
+        assertTrue(outgoing.get("traceparent").startsWith("00-4bf92f3577b34da6a3ce929d0e0e4736-"));
+        assertTrue(outgoing.get("X-Amzn-Trace-Id").startsWith("Root=1-4bf92f35-77b34da6a3ce929d0e0e4736"));
+    }
+
+    @Test
+    void exportsSpansInBatches() {
+        int spans = 20_000;
+        double exportedBefore = exportedSpans();
+        int requestsBefore = exportRequests.get();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < spans; i++) {
+            GatewaySpan span = tracingBackend.startSpan("Gateway", new HttpHeaders());
+            span.setHttpRequest("GET", "/api/rooms");
+            span.setHttpStatus(200);
+            span.end();
+        }
+        assertTrue(openTelemetry.getSdkTracerProvider().forceFlush().join(10, TimeUnit.SECONDS).isSuccess());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        double exported = exportedSpans() - exportedBefore;
+        int requests = exportRequests.get() - requestsBefore;
+        double spansPerSecond = exported * 1000 / Math.max(elapsedMillis, 1);
+
+        assertEquals(spans, exported);
+        // Batching: far fewer export calls than spans
+        assertTrue(requests <= spans / 100, "Too many export requests: " + requests);
+        assertTrue(exportedBytes.get() > 0);
+        // Well above the gateway's peak request rate, with room for slow CI machines
+        assertTrue(spansPerSecond >= MIN_SPANS_PER_SECOND, "Exported only " + spansPerSecond + " spans/s");
+    }
+
+    private double exportedSpans() {
+        return meterRegistry.counter("gateway.tracing.spans.exported", "result", "success").count();
+    }
+
+    private static HttpServer startCollector() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/v1/traces", exchange -> {
+                try (InputStream body = exchange.getRequestBody()) {
+                    exportedBytes.addAndGet(body.readAllBytes().length);
+                }
+                exportRequests.incrementAndGet();
+                exchange.getResponseHeaders().add("Content-Type", "application/x-protobuf");
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.springcloud.demo.apigateway.monitoring;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.mockito.BDDMockito.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.monitoring.timing.ServerTimingWebFilter;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class ServerTimingTestIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    String uri;
+
+    @BeforeEach
+    void setup() {
+        uri = "/api/rooms";
+        UserDTO userLogged = UserDTO.builder()
+                .id(UUID.randomUUID())
+                .email("gonza@gmail.com")
+                .build();
+
+        given(userClient.findByEmail(anyString())).willReturn(Mono.just(userLogged));
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                )
+        );
+    }
+
+    @Test
+    void serverTimingHeaderWhenAdminFlagged() {
+        String token = jwtUtils.generateToken("gonza@gmail.com");
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + token)
+                .header(ServerTimingWebFilter.DEBUG_TIMING_HEADER, "test-timing-token")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().value(ServerTimingWebFilter.SERVER_TIMING_HEADER, Matchers.allOf(
+                        Matchers.containsString("jwt;"),
+                        Matchers.containsString("user;"),
+                        Matchers.containsString("upstream;")
+                ));
+
+        assertNotNull(meterRegistry.find("gateway.phase.duration")
+                .tags("phase", "upstream", "route", "rooms-any-role")
+                .timer());
+    }
+
+    @Test
+    void noServerTimingHeaderWhenNotFlagged() {
+        String token = jwtUtils.generateToken("gonza@gmail.com");
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().doesNotExist(ServerTimingWebFilter.SERVER_TIMING_HEADER);
+    }
+}
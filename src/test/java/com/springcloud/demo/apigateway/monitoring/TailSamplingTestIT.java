@@ -0,0 +1,194 @@
+package com.springcloud.demo.apigateway.monitoring;
+
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.SegmentImpl;
+import com.amazonaws.xray.entities.Subsegment;
+import com.amazonaws.xray.entities.SubsegmentImpl;
+import com.amazonaws.xray.entities.TraceID;
+import com.springcloud.demo.apigateway.monitoring.tracing.GatewaySpan;
+import com.springcloud.demo.apigateway.monitoring.tracing.TailSamplingEmitter;
+import com.springcloud.demo.apigateway.monitoring.tracing.TailSamplingPolicy;
+import com.springcloud.demo.apigateway.monitoring.tracing.TracingBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "gateway.tracing.backend=otel",
+        "gateway.tracing.otlp.endpoint=http://localhost:1/v1/traces",
+        "gateway.tracing.tail-sampling.enabled=true",
+        "gateway.tracing.tail-sampling.decision-window=1s",
+        "gateway.tracing.tail-sampling.latency-threshold=50ms",
+        "gateway.tracing.tail-sampling.baseline-rate=0.0",
+        "gateway.tracing.tail-sampling.max-buffered-size=64KB"
+})
+@ActiveProfiles("test")
+public class TailSamplingTestIT {
+
+    private static final int OVERFLOW = 50;
+    // Past the decision window, with room for the scheduler period
+    private static final long PAST_WINDOW_MILLIS = 1500;
+
+    @Autowired
+    private TailSamplingPolicy tailSamplingPolicy;
+
+    @Value("${gateway.tracing.tail-sampling.max-buffered-size}")
+    private DataSize maxBufferedSize;
+
+    @Autowired
+    private TracingBackend tracingBackend;
+
+    @Autowired
+    private OpenTelemetrySdk openTelemetry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void keepsSlowAndFailingTracesOnly() throws InterruptedException {
+        double keptBefore = traces("kept", "failure") + traces("kept", "latency");
+        double droppedBefore = traces("dropped", "none");
+
+        for (int i = 0; i < 50; i++) {
+            endSpan(200, 0);
+        }
+        endSpan(503, 0);
+        endSpan(404, 0);
+        endSpan(200, 60);
+
+        // Decisions happen once the window expires, without forcing a flush
+        Thread.sleep(PAST_WINDOW_MILLIS);
+
+        assertEquals(3, traces("kept", "failure") + traces("kept", "latency") - keptBefore);
+        assertEquals(50, traces("dropped", "none") - droppedBefore);
+        assertEquals(0, meterRegistry.get("gateway.tracing.tail_sampling.buffered").gauge().value());
+    }
+
+    @Test
+    void overflowIsDecidedImmediately() {
+        openTelemetry.getSdkTracerProvider().forceFlush().join(5, TimeUnit.SECONDS);
+        double overflowBefore = traces("dropped", "overflow");
+
+        // Every span has the same estimated size, so the buffer holds a whole number of them
+        endSpan(200, 0);
+        long spanBytes = (long) bufferedBytes();
+        long capacity = maxBufferedSize.toBytes() / spanBytes;
+        for (int i = 1; i < capacity + OVERFLOW; i++) {
+            endSpan(200, 0);
+        }
+
+        assertEquals(capacity * spanBytes, bufferedBytes());
+        assertEquals(OVERFLOW, traces("dropped", "overflow") - overflowBefore);
+
+        openTelemetry.getSdkTracerProvider().forceFlush().join(5, TimeUnit.SECONDS);
+        assertEquals(0, meterRegistry.get("gateway.tracing.tail_sampling.buffered").gauge().value());
+    }
+
+    @Test
+    void childrenShareTheDecisionOfTheirRoot() throws InterruptedException {
+        Tracer tracer = openTelemetry.getTracer("test");
+        double keptBefore = traces("kept", "failure");
+        double keptSpansBefore = spans("kept");
+
+        Span root = tracer.spanBuilder("Gateway").startSpan();
+        tracer.spanBuilder("Upstream").setParent(Context.root().with(root)).startSpan().end();
+
+        // Past the decision window the child still waits for its root
+        Thread.sleep(PAST_WINDOW_MILLIS);
+        assertEquals(1, meterRegistry.get("gateway.tracing.tail_sampling.buffered").gauge().value());
+
+        root.setStatus(StatusCode.ERROR);
+        root.end();
+        Thread.sleep(PAST_WINDOW_MILLIS);
+
+        assertEquals(1, traces("kept", "failure") - keptBefore);
+        assertEquals(2, spans("kept") - keptSpansBefore);
+    }
+
+    @Test
+    void xrayEntitiesReachTheEmitterOnlyWhenKept() throws InterruptedException {
+        List<Entity> emitted = new CopyOnWriteArrayList<>();
+        TailSamplingEmitter emitter = new TailSamplingEmitter(new Emitter() {
+            @Override
+            public boolean sendSegment(Segment segment) {
+                return emitted.add(segment);
+            }
+
+            @Override
+            public boolean sendSubsegment(Subsegment subsegment) {
+                return emitted.add(subsegment);
+            }
+        }, tailSamplingPolicy);
+        AWSXRayRecorder recorder = AWSXRayRecorderBuilder.defaultRecorder();
+
+        Segment failed = new SegmentImpl(recorder, "Gateway", TraceID.create());
+        failed.setFault(true);
+        failed.setEndTime(failed.getStartTime());
+        Subsegment upstream = new SubsegmentImpl(recorder, "Upstream", failed);
+        upstream.setEndTime(upstream.getStartTime());
+        Segment succeeded = new SegmentImpl(recorder, "Gateway", TraceID.create());
+        succeeded.setEndTime(succeeded.getStartTime());
+
+        // Streamed subsegments end before their segment
+        emitter.sendSubsegment(upstream);
+        emitter.sendSegment(failed);
+        emitter.sendSegment(succeeded);
+        assertTrue(emitted.isEmpty());
+        Thread.sleep(PAST_WINDOW_MILLIS);
+
+        assertEquals(2, emitted.size());
+        assertTrue(emitted.containsAll(List.of(failed, upstream)));
+    }
+
+    private double bufferedBytes() {
+        return meterRegistry.get("gateway.tracing.tail_sampling.buffered_bytes").gauge().value();
+    }
+
+    private void endSpan(int status, long sleepMillis) {
+        GatewaySpan span = tracingBackend.startSpan("Gateway", new HttpHeaders());
+        span.setHttpRequest("GET", "/api/rooms");
+        span.setHttpStatus(status);
+        span.setError(status >= 400 && status < 500);
+        span.setFault(status >= 500);
+        if (sleepMillis > 0) {
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        span.end();
+    }
+
+    private double traces(String decision, String reason) {
+        var counter = meterRegistry.find("gateway.tracing.tail_sampling.traces")
+                .tags("decision", decision, "reason", reason)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private double spans(String decision) {
+        var counter = meterRegistry.find("gateway.tracing.tail_sampling.spans").tags("decision", decision).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,153 @@
+package com.springcloud.demo.apigateway.monitoring.accesslog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessLogWriterTestIT {
+
+    @TempDir
+    Path logDir;
+
+    @Test
+    void sustains50kRecordsPerSecondWithoutDrops() throws Exception {
+        int producers = 4;
+        int recordsPerSecond = 50_000;
+        int seconds = 2;
+
+        AccessLogProperties properties = properties(AccessLogProperties.Format.JSON);
+        AccessLogRingBuffer ringBuffer = new AccessLogRingBuffer(properties.getBufferSize());
+        AccessLogWriter writer = new AccessLogWriter(ringBuffer, properties);
+        writer.start();
+
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> publishPaced(ringBuffer, recordsPerSecond / producers, seconds));
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.stop();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        long total = (long) recordsPerSecond * seconds;
+        double writtenPerSecond = writer.getWritten() * 1000.0 / elapsedMillis;
+
+        assertEquals(0, ringBuffer.getDropped());
+        assertEquals(total, writer.getWritten());
+        // Producers are paced to the target, so this only fails when the writer falls behind
+        assertTrue(writtenPerSecond >= recordsPerSecond * 0.9, "Wrote only " + writtenPerSecond + " records/s");
+        List<String> lines = Files.readAllLines(Path.of(properties.getFile()));
+        assertEquals(total, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"timestamp\":"));
+        assertTrue(lines.get(0).contains("\"route\":\"rooms-any-role\",\"method\":\"GET\",\"path\":\"/api/rooms/{id}\""));
+    }
+
+    @Test
+    void dropsWhenRingBufferIsFull() {
+        AccessLogRingBuffer ringBuffer = new AccessLogRingBuffer(16);
+
+        for (int i = 0; i < 20; i++) {
+            ringBuffer.publish(0, "rooms-any-role", "GET", "/api/rooms", 200, 0, 0, null, null);
+        }
+
+        assertEquals(16, ringBuffer.capacity());
+        assertEquals(4, ringBuffer.getDropped());
+    }
+
+    @Test
+    void rollsFilesBySize() throws Exception {
+        AccessLogProperties properties = properties(AccessLogProperties.Format.BINARY);
+        properties.setMaxFileSize(org.springframework.util.unit.DataSize.ofKilobytes(16));
+        properties.setMaxHistory(2);
+        AccessLogRingBuffer ringBuffer = new AccessLogRingBuffer(properties.getBufferSize());
+        AccessLogWriter writer = new AccessLogWriter(ringBuffer, properties);
+        writer.start();
+
+        for (int i = 0; i < 2_000; i++) {
+            ringBuffer.publish(System.currentTimeMillis(), "rooms-any-role", "GET", "/api/rooms/{id}", 200,
+                    512, 1_000_000, UUID.randomUUID().toString(), null);
+            if (i % 100 == 0) {
+                Thread.sleep(5);
+            }
+        }
+        writer.stop();
+
+        assertTrue(Files.exists(logDir.resolve("access.log")));
+        assertTrue(Files.exists(logDir.resolve("access.log.1")));
+        assertTrue(Files.exists(logDir.resolve("access.log.2")));
+        assertFalse(Files.exists(logDir.resolve("access.log.3")));
+    }
+
+    @Test
+    void reopensTheFileAfterAWriteFailure() throws Exception {
+        // A regular file where the log directory should be makes opening the log fail
+        Path blocker = Files.createFile(logDir.resolve("logs"));
+        AccessLogProperties properties = properties(AccessLogProperties.Format.JSON);
+        properties.setFile(blocker.resolve("access.log").toString());
+        AccessLogRingBuffer ringBuffer = new AccessLogRingBuffer(properties.getBufferSize());
+        AccessLogWriter writer = new AccessLogWriter(ringBuffer, properties);
+        writer.start();
+
+        for (int i = 0; i < 10; i++) {
+            ringBuffer.publish(System.currentTimeMillis(), "rooms-any-role", "GET", "/api/rooms", 200, 0, 0, null, null);
+        }
+        awaitUntil(() -> writer.getWriteErrors() > 0);
+
+        Files.delete(blocker);
+        for (int i = 0; i < 10; i++) {
+            ringBuffer.publish(System.currentTimeMillis(), "rooms-any-role", "GET", "/api/rooms", 200, 0, 0, null, null);
+        }
+        awaitUntil(() -> writer.getWritten() == 20);
+        writer.stop();
+
+        assertEquals(0, writer.getFailed());
+        assertEquals(0, ringBuffer.getDropped());
+        assertEquals(20, Files.readAllLines(Path.of(properties.getFile())).size());
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the access log writer");
+            Thread.sleep(10);
+        }
+    }
+
+    private AccessLogProperties properties(AccessLogProperties.Format format) {
+        AccessLogProperties properties = new AccessLogProperties();
+        properties.setFile(logDir.resolve("access.log").toString());
+        properties.setFormat(format);
+        return properties;
+    }
+
+    private static void publishPaced(AccessLogRingBuffer ringBuffer, int perSecond, int seconds) {
+        String userId = UUID.randomUUID().toString();
+        long interval = TimeUnit.SECONDS.toNanos(1) / perSecond;
+        long next = System.nanoTime();
+
+        for (int i = 0; i < perSecond * seconds; i++) {
+            ringBuffer.publish(System.currentTimeMillis(), "rooms-any-role", "GET", "/api/rooms/{id}", 200,
+                    1024, 2_500_000, userId, "1-5759e988-bd862e3fe1be46a994272793");
+
+            next += interval;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+}
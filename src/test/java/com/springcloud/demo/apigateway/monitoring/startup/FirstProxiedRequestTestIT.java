@@ -0,0 +1,56 @@
+package com.springcloud.demo.apigateway.monitoring.startup;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class FirstProxiedRequestTestIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void firstProxiedRequestIsRecordedOnce() {
+        stubFor(get(urlPathMatching("/api/auth/swagger-ui/.*")).willReturn(aResponse()
+                .withStatus(200)
+                .withBody("<html></html>")));
+
+        webTestClient.get().uri("/api/auth/swagger-ui/index.html").exchange().expectStatus().isOk();
+        double first = firstProxiedRequest();
+        webTestClient.get().uri("/api/auth/swagger-ui/index.html").exchange().expectStatus().isOk();
+
+        assertTrue(first > 0);
+        assertTrue(first <= ManagementFactory.getRuntimeMXBean().getUptime());
+        assertEquals(first, firstProxiedRequest());
+    }
+
+    private double firstProxiedRequest() {
+        TimeGauge gauge = meterRegistry.find("gateway.startup.first_proxied_request").timeGauge();
+        assertNotNull(gauge);
+        return gauge.value(TimeUnit.MILLISECONDS);
+    }
+}
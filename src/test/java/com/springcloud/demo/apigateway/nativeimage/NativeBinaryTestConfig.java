@@ -0,0 +1,63 @@
+package com.springcloud.demo.apigateway.nativeimage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.contract.wiremock.WireMockConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Points the suites at the native executable started by the native Maven profile instead of the
+ * application context of the test. The executable calls users-ms on WireMock, where the UserClient
+ * mock of the suite answers, so the suites run unchanged.
+ */
+@Configuration
+@ConditionalOnProperty("gateway.native.base-url")
+public class NativeBinaryTestConfig {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+
+    @Bean
+    public WebTestClient nativeBinaryWebTestClient(@Value("${gateway.native.base-url}") String baseUrl) {
+        awaitListening(URI.create(baseUrl));
+        return WebTestClient.bindToServer()
+                .baseUrl(baseUrl)
+                .responseTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @Bean
+    public WireMockConfigurationCustomizer userClientOverWireMock(ObjectProvider<UserClient> userClient,
+                                                                  ObjectMapper objectMapper) {
+        return options -> options.extensions(new UserClientStubFilter(userClient, objectMapper));
+    }
+
+    // The executable is started asynchronously right before the suites
+    private static void awaitListening(URI uri) {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (true) {
+            try (Socket ignored = new Socket(uri.getHost(), uri.getPort())) {
+                return;
+            } catch (IOException e) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IllegalStateException("Native executable not listening on " + uri, e);
+                }
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
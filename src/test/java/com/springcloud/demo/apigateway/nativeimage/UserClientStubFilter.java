@@ -0,0 +1,78 @@
+package com.springcloud.demo.apigateway.nativeimage;
+
+import static com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder.responseDefinition;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.extension.requestfilter.RequestFilterAction;
+import com.github.tomakehurst.wiremock.extension.requestfilter.StubRequestFilterV2;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.exceptions.SimpleException;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Answers the user lookups of the native executable with whatever the UserClient mock of the
+ * running suite was given, before any stub is matched.
+ */
+class UserClientStubFilter implements StubRequestFilterV2 {
+
+    private static final String PATH = "/api/users/email/";
+
+    private final ObjectProvider<UserClient> userClient;
+    private final ObjectMapper objectMapper;
+
+    UserClientStubFilter(ObjectProvider<UserClient> userClient, ObjectMapper objectMapper) {
+        this.userClient = userClient;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public RequestFilterAction filter(Request request, ServeEvent serveEvent) {
+        String path = URI.create(request.getUrl()).getPath();
+        if (!path.startsWith(PATH)) {
+            return RequestFilterAction.continueWith(request);
+        }
+
+        String email = URLDecoder.decode(path.substring(PATH.length()), StandardCharsets.UTF_8);
+        try {
+            Mono<UserDTO> lookup = userClient.getObject().findByEmail(email);
+            UserDTO user = lookup != null ? lookup.block() : null;
+            // An empty body is an empty Mono on the UserClient of the executable too
+            return respond(200, user != null ? json(user) : "");
+        } catch (SimpleException e) {
+            return respond(e.getStatus(), json(Map.of("message", e.getMessage())));
+        }
+    }
+
+    private String json(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RequestFilterAction respond(int status, String body) {
+        ResponseDefinition response = responseDefinition()
+                .withStatus(status)
+                .withHeader("Content-Type", "application/json")
+                .withBody(body)
+                .build();
+        return RequestFilterAction.stopWith(response);
+    }
+
+    @Override
+    public String getName() {
+        return "user-client-mock";
+    }
+}
@@ -0,0 +1,171 @@
+package com.springcloud.demo.apigateway.overload;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.cloud.contract.wiremock.WireMockConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Load test: slow requests on a normal route push the in flight count past the elevated
+ * threshold, then docs are shed while logins keep being served without waiting.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+@TestPropertySource(properties = {
+        "gateway.overload.in-flight.elevated=20",
+        "gateway.overload.in-flight.overloaded=60"
+})
+public class LoadSheddingTestIT {
+
+    private static final int CONCURRENT_REQUESTS = 30;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OverloadDetector overloadDetector;
+
+    @Autowired
+    private OverloadProperties properties;
+
+    // The 25 default threads of WireMock would queue the login behind the slow requests
+    @TestConfiguration
+    static class WireMockThreads {
+        @Bean
+        WireMockConfigurationCustomizer containerThreads() {
+            return options -> options.containerThreads(100);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        given(userClient.findByEmail(anyString())).willReturn(Mono.just(UserDTO.builder()
+                .id(UUID.randomUUID())
+                .email("loaded@gmail.com")
+                .build()));
+        stubFor(get(urlPathMatching("/api/users/.*"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{}")
+                        .withFixedDelay(2000)));
+        stubFor(get(urlEqualTo("/api/rooms/v3/api-docs"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{}")));
+        stubFor(post(urlEqualTo("/api/auth/login"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")));
+    }
+
+    @Test
+    void sheddableRoutesAreDroppedWhileCriticalOnesStayFast() throws Exception {
+        double shed = shed("rooms-doc");
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        try {
+            List<CompletableFuture<Integer>> load = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                String uri = "/api/users/" + UUID.randomUUID();
+                load.add(CompletableFuture.supplyAsync(() -> fetchUser(uri), executor));
+            }
+            awaitInFlight(properties.getInFlight().getElevated());
+
+            webTestClient.get()
+                    .uri("/api/rooms/v3/api-docs")
+                    .exchange()
+                    .expectStatus().isEqualTo(503)
+                    .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1")
+                    .expectBody().jsonPath("$.message").isEqualTo("Gateway overloaded");
+
+            long start = System.nanoTime();
+            webTestClient.post()
+                    .uri("/api/auth/login")
+                    .bodyValue(Map.of("email", "loaded@gmail.com", "password", "Abcd1234"))
+                    .exchange()
+                    .expectStatus().isOk();
+            long loginMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+            for (CompletableFuture<Integer> response : load) {
+                assertEquals(200, response.get());
+            }
+            assertTrue(loginMillis < 1000, "login took " + loginMillis + "ms under load");
+            assertEquals(shed + 1, shed("rooms-doc"));
+        } finally {
+            executor.shutdown();
+        }
+
+        // Served again once the load is gone
+        webTestClient.get()
+                .uri("/api/rooms/v3/api-docs")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private int fetchUser(String uri) {
+        return webTestClient.mutate()
+                .responseTimeout(Duration.ofSeconds(10))
+                .build()
+                .get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken("loaded@gmail.com"))
+                .exchange()
+                .returnResult(String.class)
+                .getStatus()
+                .value();
+    }
+
+    private void awaitInFlight(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (overloadDetector.inFlight() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(overloadDetector.inFlight() >= count);
+    }
+
+    private double shed(String route) {
+        Counter counter = meterRegistry.find("gateway.overload.shed").tag("route", route).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,128 @@
+package com.springcloud.demo.apigateway.pool;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWireMock(port = 9090)
+public class UpstreamPoolTestIT {
+
+    private static final int SLOW_CONNECTIONS = 2;
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Two lb:// services on the WireMock address, only the pools set them apart
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.discovery.client.simple.instances.slow-ms[0].uri", () -> "http://localhost:9090");
+        registry.add("spring.cloud.discovery.client.simple.instances.fast-ms[0].uri", () -> "http://localhost:9090");
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "slow-pool");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> "lb://slow-ms");
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/slow/**");
+        registry.add("spring.cloud.gateway.routes[1].id", () -> "fast-pool");
+        registry.add("spring.cloud.gateway.routes[1].uri", () -> "lb://fast-ms");
+        registry.add("spring.cloud.gateway.routes[1].predicates[0]", () -> "Path=/api/fast/**");
+        registry.add("gateway.upstream-pool.services.slow-ms.max-connections", () -> Integer.toString(SLOW_CONNECTIONS));
+        registry.add("gateway.upstream-pool.services.slow-ms.pending-acquire-max-count", () -> "1");
+    }
+
+    @Test
+    void saturatedServiceDoesNotStarveTheOthers() throws Exception {
+        stubFor(get(urlPathMatching("/api/slow/.*")).willReturn(aResponse()
+                .withStatus(200)
+                .withFixedDelay(2000)
+                .withBody("slow")));
+        stubFor(get(urlPathMatching("/api/fast/.*")).willReturn(aResponse()
+                .withStatus(200)
+                .withBody("fast")));
+        WebClient webClient = WebClient.create("http://localhost:" + port);
+        double rejected = counter("slow-ms", "pending_full");
+
+        // Every connection of slow-ms taken, and its single wait slot
+        CompletableFuture<List<Integer>> saturating = Flux.range(0, SLOW_CONNECTIONS + 1)
+                .flatMap(i -> send(webClient, "/api/slow/" + i))
+                .map(response -> response.getStatusCode().value())
+                .collectList()
+                .toFuture();
+        awaitSaturated("slow-ms");
+
+        ResponseEntity<String> refused = send(webClient, "/api/slow/refused").block(Duration.ofSeconds(5));
+        assertEquals(503, refused.getStatusCode().value());
+        assertEquals(rejected + 1, counter("slow-ms", "pending_full"));
+
+        long start = System.nanoTime();
+        ResponseEntity<String> fast = send(webClient, "/api/fast/1").block(Duration.ofSeconds(5));
+        assertEquals(200, fast.getStatusCode().value());
+        assertEquals("fast", fast.getBody());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(1)) < 0);
+
+        assertEquals(List.of(200, 200, 200), saturating.get());
+        assertTrue(utilization("fast-ms") < 1.0);
+    }
+
+    private static Mono<ResponseEntity<String>> send(WebClient webClient, String uri) {
+        return webClient.get()
+                .uri(uri)
+                .exchangeToMono(response -> response.toEntity(String.class));
+    }
+
+    private void awaitSaturated(String service) throws InterruptedException {
+        for (int i = 0; i < 50 && (utilization(service) < 1.0 || pending(service) < 1); i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1.0, utilization(service));
+        assertEquals(1, pending(service));
+    }
+
+    // Published by Reactor Netty to the global registry
+    private static double pending(String service) {
+        return Metrics.globalRegistry.find("reactor.netty.connection.provider.pending.connections")
+                .tag("name", service)
+                .gauges().stream()
+                .mapToDouble(Gauge::value)
+                .sum();
+    }
+
+    private double utilization(String service) {
+        Gauge gauge = meterRegistry.find("gateway.upstream.pool.utilization").tag("service", service).gauge();
+        return gauge == null ? 0 : gauge.value();
+    }
+
+    private double counter(String service, String reason) {
+        Counter counter = meterRegistry.find("gateway.upstream.pool.rejected")
+                .tags("service", service, "reason", reason)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,175 @@
+package com.springcloud.demo.apigateway.ratelimit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.client.users.dto.UserRoleDTO;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.WebFilter;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@SpringBootTest(properties = "gateway.rate-limit.trusted-proxies=10.0.0.0/8")
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class RateLimitTestIT {
+
+    // The mock server has no connection, the peer address of a request is taken from this header
+    private static final String PEER_HEADER = "X-Test-Peer";
+    private static final String LOAD_BALANCER = "10.0.0.5";
+
+    @TestConfiguration
+    static class PeerAddress {
+        @Bean
+        @Order(Ordered.HIGHEST_PRECEDENCE)
+        WebFilter peerAddressFilter() {
+            return (exchange, chain) -> {
+                String peer = exchange.getRequest().getHeaders().getFirst(PEER_HEADER);
+                if (peer == null) {
+                    return chain.filter(exchange);
+                }
+                ServerHttpRequest request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+                    @Override
+                    public InetSocketAddress getRemoteAddress() {
+                        return new InetSocketAddress(peer, 40000);
+                    }
+                };
+                return chain.filter(exchange.mutate().request(request).build());
+            };
+        }
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        given(userClient.findByEmail(anyString())).willAnswer(invocation -> Mono.just(UserDTO.builder()
+                .id(UUID.nameUUIDFromBytes(invocation.getArgument(0, String.class).getBytes()))
+                .email(invocation.getArgument(0))
+                .roles(List.of(UserRoleDTO.builder().role("CUSTOMER").build()))
+                .build()));
+        stubFor(post(urlEqualTo("/api/users"))
+                .willReturn(aResponse()
+                        .withStatus(201)));
+        stubFor(get(urlPathMatching("/api/bookings/limited.*"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[]")));
+    }
+
+    @Test
+    void publicRouteIsLimitedByClientIp() {
+        double rejected = requests("users-public", "rejected");
+
+        for (int i = 0; i < 3; i++) {
+            createUser("203.0.113.7")
+                    .expectStatus().isCreated()
+                    .expectHeader().valueEquals(RateLimitFilter.LIMIT_HEADER, "3")
+                    .expectHeader().valueEquals(RateLimitFilter.REMAINING_HEADER, Integer.toString(2 - i));
+        }
+
+        createUser("203.0.113.7")
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals(RateLimitFilter.REMAINING_HEADER, "0")
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER)
+                .expectBody().jsonPath("$.message").isEqualTo("Too many requests");
+        createUser("203.0.113.8")
+                .expectStatus().isCreated();
+
+        verify(4, postRequestedFor(urlEqualTo("/api/users")));
+        assertEquals(rejected + 1, requests("users-public", "rejected"));
+    }
+
+    @Test
+    void forwardedForOfUntrustedPeerIsIgnored() {
+        for (int i = 0; i < 3; i++) {
+            createUser("198.51.100.20", "203.0.113." + (20 + i))
+                    .expectStatus().isCreated();
+        }
+
+        // A new X-Forwarded-For does not give the same peer a new bucket
+        createUser("198.51.100.20", "203.0.113.30")
+                .expectStatus().isEqualTo(429);
+    }
+
+    @Test
+    void authenticatedRouteIsLimitedByUser() {
+        for (int i = 0; i < 2; i++) {
+            fetchBookings("first-limited@gmail.com", i)
+                    .expectHeader().valueEquals(RateLimitFilter.REMAINING_HEADER, Integer.toString(99 - i));
+        }
+
+        // Same address, other user
+        fetchBookings("second-limited@gmail.com", 0)
+                .expectHeader().valueEquals(RateLimitFilter.REMAINING_HEADER, "99");
+    }
+
+    // Through the load balancer, which appends the address of the client
+    private WebTestClient.ResponseSpec createUser(String clientIp) {
+        return createUser(LOAD_BALANCER, "198.51.100.1, " + clientIp);
+    }
+
+    private WebTestClient.ResponseSpec createUser(String peer, String forwardedFor) {
+        return webTestClient.post()
+                .uri("/api/users")
+                .header(PEER_HEADER, peer)
+                .header("X-Forwarded-For", forwardedFor)
+                .bodyValue(Map.of("email", "limited@gmail.com", "password", "Abcd1234"))
+                .exchange();
+    }
+
+    private WebTestClient.ResponseSpec fetchBookings(String email, int page) {
+        return webTestClient.get()
+                .uri("/api/bookings/limited?page=" + page)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken(email))
+                .header("X-Forwarded-For", "203.0.113.9")
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    private double requests(String route, String result) {
+        Counter counter = meterRegistry.find("gateway.rate_limit.requests")
+                .tag("route", route)
+                .tag("result", result)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
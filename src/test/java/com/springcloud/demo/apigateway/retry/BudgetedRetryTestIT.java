@@ -0,0 +1,154 @@
+package com.springcloud.demo.apigateway.retry;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+import com.github.tomakehurst.wiremock.client.MappingBuilder;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.springcloud.demo.apigateway.client.users.dto.UserDTO;
+import com.springcloud.demo.apigateway.client.users.dto.UserRoleDTO;
+import com.springcloud.demo.apigateway.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class BudgetedRetryTestIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        given(userClient.findByEmail(anyString())).willAnswer(invocation -> Mono.just(UserDTO.builder()
+                .id(UUID.nameUUIDFromBytes(invocation.getArgument(0, String.class).getBytes()))
+                .email(invocation.getArgument(0))
+                .roles(List.of(UserRoleDTO.builder().role("CUSTOMER").build()))
+                .build()));
+    }
+
+    @Test
+    void getIsRetriedAfterConnectionReset() {
+        String uri = "/api/asks/retried";
+        failOnce(() -> get(urlEqualTo(uri)), aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody("[]"));
+        double attempts = counter("gateway.retry.attempts", "asks-any-role");
+
+        webTestClient.get()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken("retried@gmail.com"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("[]");
+
+        verify(2, getRequestedFor(urlEqualTo(uri)));
+        assertEquals(attempts + 1, counter("gateway.retry.attempts", "asks-any-role"));
+    }
+
+    @Test
+    void postWithIdempotencyKeyIsRetriedWithItsBody() {
+        failOnce(() -> post(urlEqualTo("/api/asks")), aResponse()
+                .withStatus(201));
+
+        webTestClient.post()
+                .uri("/api/asks")
+                .header("Authorization", "Bearer " + jwtUtils.generateToken("keyed@gmail.com"))
+                .header(BudgetedRetryFilter.IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+                .bodyValue(Map.of("roomId", "keyed"))
+                .exchange()
+                .expectStatus().isCreated();
+
+        verify(2, postRequestedFor(urlEqualTo("/api/asks"))
+                .withRequestBody(equalToJson("{\"roomId\":\"keyed\"}")));
+    }
+
+    @Test
+    void postWithoutIdempotencyKeyIsNotRetried() {
+        String uri = "/api/bookings/unkeyed";
+        stubFor(post(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+        webTestClient.post()
+                .uri(uri)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken("unkeyed@gmail.com"))
+                .bodyValue(Map.of("roomId", "unkeyed"))
+                .exchange()
+                .expectStatus().is5xxServerError();
+
+        verify(1, postRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    void budgetStopsRetriesOfFailingService() {
+        String uri = "/api/bookings/down";
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withFault(Fault.CONNECTION_RESET_BY_PEER)));
+        double exhausted = counter("gateway.retry.budget_exhausted", "bookings-any-role");
+        int requests = 6;
+
+        for (int i = 0; i < requests; i++) {
+            webTestClient.get()
+                    .uri(uri)
+                    .header("Authorization", "Bearer " + jwtUtils.generateToken("down@gmail.com"))
+                    .exchange()
+                    .expectStatus().is5xxServerError();
+        }
+
+        // Without the budget every request would be attempted three times
+        int upstreamCalls = findAll(getRequestedFor(urlEqualTo(uri))).size();
+        assertTrue(upstreamCalls < requests * 3, upstreamCalls + " upstream calls");
+        assertTrue(counter("gateway.retry.budget_exhausted", "bookings-any-role") > exhausted);
+    }
+
+    private void failOnce(Supplier<MappingBuilder> request, ResponseDefinitionBuilder response) {
+        String scenario = UUID.randomUUID().toString();
+        stubFor(request.get()
+                .inScenario(scenario)
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER))
+                .willSetStateTo("recovered"));
+        stubFor(request.get()
+                .inScenario(scenario)
+                .whenScenarioStateIs("recovered")
+                .willReturn(response));
+    }
+
+    private double counter(String name, String service) {
+        Counter counter = meterRegistry.find(name).tag("service", service).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
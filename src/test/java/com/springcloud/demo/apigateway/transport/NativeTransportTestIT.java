@@ -0,0 +1,92 @@
+package com.springcloud.demo.apigateway.transport;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+
+/**
+ * The performance profile on a real socket: requests still go through the gateway, on the native
+ * transport whenever this machine supports it.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "performance"})
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 9090)
+public class NativeTransportTestIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private TransportOptions transportOptions;
+
+    @Autowired
+    private ObjectProvider<ReusePortAcceptors> reusePortAcceptors;
+
+    @Test
+    void nativeTransportIsUsedWhenAvailable() {
+        assertEquals(Transport.resolve(true), transportOptions.transport());
+        assertEquals(transportOptions.transport() == Transport.EPOLL, transportOptions.isReusePort());
+        assertNotNull(reusePortAcceptors.getIfAvailable());
+    }
+
+    @Test
+    void requestsAreProxied() {
+        String uri = "/api/auth/swagger-ui/index.html";
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("<html></html>")));
+
+        // New connections each time, so they land on every acceptor
+        for (int i = 0; i < 8; i++) {
+            webTestClient.get()
+                    .uri(uri)
+                    .header("Connection", "close")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(String.class).isEqualTo("<html></html>");
+        }
+    }
+
+    @Test
+    void everyAcceptorSpeaksH2c() {
+        String uri = "/api/auth/swagger-ui/index.css";
+        stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("body {}")));
+
+        for (int i = 0; i < 8; i++) {
+            String version = HttpClient.newConnection()
+                    .protocol(HttpProtocol.H2C)
+                    .get()
+                    .uri("http://localhost:" + port + uri)
+                    .responseSingle((response, body) -> body.asString().thenReturn(response.version().text()))
+                    .block(Duration.ofSeconds(10));
+
+            assertEquals("HTTP/2.0", version);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.springcloud.demo.apigateway.upload;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.springcloud.demo.apigateway.client.users.UserClient;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs in its own fork with a 384 MB heap (see the bounded-heap failsafe execution), so the
+ * concurrent uploads only get through if no body is ever held in full.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class StreamingUploadTestIT {
+
+    private static final int CONCURRENT_UPLOADS = 12;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final long UPLOAD_SIZE = 50L * 1024 * 1024;
+    private static final long MAX_IN_FLIGHT = 8L * 1024 * 1024;
+
+    private static final AtomicInteger sinkRequests = new AtomicInteger();
+    private static final HttpServer sink = startSink();
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private UserClient userClient;
+
+    @Autowired
+    private UploadMemory uploadMemory;
+
+    // WireMock keeps every request body in heap, this sink only counts the bytes it drains
+    private static HttpServer startSink() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.setExecutor(Executors.newFixedThreadPool(CONCURRENT_UPLOADS));
+            server.createContext("/", exchange -> {
+                sinkRequests.incrementAndGet();
+                long received = 0;
+                byte[] buffer = new byte[CHUNK_SIZE];
+                try (InputStream body = exchange.getRequestBody()) {
+                    for (int read; (read = body.read(buffer)) > 0; ) {
+                        received += read;
+                    }
+                }
+                byte[] response = Long.toString(received).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(201, response.length);
+                exchange.getResponseBody().write(response);
+                exchange.close();
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @AfterAll
+    static void stopSink() {
+        sink.stop(0);
+    }
+
+    // Only the upload routes, in front of the sink
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry registry) {
+        String uri = "http://localhost:" + sink.getAddress().getPort();
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "rooms-owners");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> uri);
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/rooms/**");
+        registry.add("spring.cloud.gateway.routes[0].filters[0].name", () -> "StreamingUploadFilter");
+        registry.add("spring.cloud.gateway.routes[0].filters[0].args.max-size", () -> "64MB");
+        registry.add("spring.cloud.gateway.routes[1].id", () -> "receipts-uploads");
+        registry.add("spring.cloud.gateway.routes[1].uri", () -> uri);
+        registry.add("spring.cloud.gateway.routes[1].predicates[0]", () -> "Path=/api/receipts/**");
+        registry.add("spring.cloud.gateway.routes[1].filters[0].name", () -> "StreamingUploadFilter");
+        registry.add("spring.cloud.gateway.routes[1].filters[0].args.max-size", () -> "1MB");
+        registry.add("gateway.upload.max-in-flight", () -> Long.toString(MAX_IN_FLIGHT));
+        registry.add("gateway.deadline.timeouts.rooms-owners", () -> "2m");
+    }
+
+    @Test
+    void concurrentLargeUploadsStreamWithinTheCap() {
+        WebClient webClient = WebClient.create("http://localhost:" + port);
+
+        List<String> received = Flux.range(0, CONCURRENT_UPLOADS)
+                .flatMap(i -> upload(webClient, "/api/rooms/" + UUID.randomUUID() + "/images", UPLOAD_SIZE)
+                        .map(ResponseEntity::getBody), CONCURRENT_UPLOADS)
+                .collectList()
+                .block(Duration.ofMinutes(2));
+
+        assertEquals(CONCURRENT_UPLOADS, received.size());
+        received.forEach(bytes -> assertEquals(Long.toString(UPLOAD_SIZE), bytes));
+        assertTrue(uploadMemory.peakBytes() <= MAX_IN_FLIGHT, uploadMemory.peakBytes() + " bytes in flight");
+        assertEquals(0, uploadMemory.usedBytes());
+    }
+
+    @Test
+    void bodiesOverTheRouteLimitAreRefusedFromTheirLength() {
+        WebClient webClient = WebClient.create("http://localhost:" + port);
+        int requests = sinkRequests.get();
+
+        ResponseEntity<String> response = upload(webClient, "/api/receipts/" + UUID.randomUUID(), 2L * 1024 * 1024)
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(413, response.getStatusCode().value());
+        assertEquals(requests, sinkRequests.get());
+    }
+
+    private static Mono<ResponseEntity<String>> upload(WebClient webClient, String uri, long size) {
+        // One chunk shared by every buffer, the client side holds no body either
+        byte[] chunk = new byte[CHUNK_SIZE];
+        Flux<DataBuffer> body = Flux.range(0, (int) (size / CHUNK_SIZE))
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+
+        return webClient.post()
+                .uri(uri)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(size)
+                .body(BodyInserters.fromDataBuffers(body))
+                .exchangeToMono(response -> response.toEntity(String.class));
+    }
+}